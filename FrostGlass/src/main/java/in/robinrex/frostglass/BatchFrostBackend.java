@@ -0,0 +1,41 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+
+import java.util.List;
+
+/**
+ * A {@link FrostBackend} that frosts a list of bitmaps faster than one call to
+ * {@link FrostBackend#frost(Bitmap, Bitmap, int)} per bitmap would, by keeping its buffers and scripts across the
+ * bitmaps and overlapping the work on successive bitmaps.
+ *
+ * @author Robin Rex G.
+ * @see FrostEngine#frostAll(List, int, FrostBackend)
+ */
+interface BatchFrostBackend extends FrostBackend {
+
+    /**
+     * Told about every bitmap of a batch as soon as it is frosted.
+     */
+    interface Listener {
+
+        /**
+         * Called on the thread that frosted the bitmap, which may be any thread of the backend.
+         *
+         * @param index   The index of the bitmap in the batch.
+         * @param frosted The frosted bitmap.
+         * @return False to stop frosting the bitmaps that have not been started yet.
+         */
+        boolean onFrosted(int index, Bitmap frosted);
+    }
+
+    /**
+     * Frosts every bitmap of the list in place. Returns once every bitmap has been frosted and reported, or once the
+     * listener has stopped the batch.
+     *
+     * @param bitmaps  The bitmaps to be frosted. They have to be mutable.
+     * @param radius   The blur radius, between 1 and {@link #getMaxRadius()}.
+     * @param listener Told about every frosted bitmap.
+     */
+    void frostAll(List<Bitmap> bitmaps, int radius, Listener listener);
+}
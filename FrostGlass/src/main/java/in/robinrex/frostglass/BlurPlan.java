@@ -0,0 +1,100 @@
+package in.robinrex.frostglass;
+
+/**
+ * Describes how a requested blur radius is achieved within the kernel size limit of a backend. Radii larger than the
+ * limit are split into an extra downsample step and a residual kernel radius, so that the blurred result looks the same
+ * once it is scaled back up, while the cost stays close to that of a small radius.
+ * <p/>
+ * Instances are immutable and are created with {@link #plan(int, float, int)}.
+ *
+ * @author Robin Rex G.
+ */
+public final class BlurPlan {
+
+    /**
+     * The largest kernel radius of the Renderscript blur, which backs the default backend.
+     */
+    public static final int MAX_KERNEL_RADIUS = 25;
+
+    private final int mRequestedRadius;
+
+    private final float mDownsampleFactor;
+
+    private final int mExtraDownsample;
+
+    private final int mRadius;
+
+    private BlurPlan(int requestedRadius, float downsampleFactor, int extraDownsample, int radius) {
+        mRequestedRadius = requestedRadius;
+        mDownsampleFactor = downsampleFactor;
+        mExtraDownsample = extraDownsample;
+        mRadius = radius;
+    }
+
+    /**
+     * Plans a blur with the given radius.
+     *
+     * @param radius           The requested radius, in pixels of the bitmap downsampled by {@code downsampleFactor}.
+     * @param downsampleFactor The downsample factor the caller would capture with.
+     * @param maxKernelRadius  The largest radius the backend supports. Radii up to it are handed to the backend as is.
+     * @return The plan for the requested radius.
+     */
+    public static BlurPlan plan(int radius, float downsampleFactor, int maxKernelRadius) {
+        final int requestedRadius = Math.max(1, radius);
+        final int kernelLimit = Math.max(1, maxKernelRadius);
+        final int extraDownsample = (requestedRadius + kernelLimit - 1) / kernelLimit;
+
+        return new BlurPlan(requestedRadius, downsampleFactor, extraDownsample,
+                scaleRadius(requestedRadius, extraDownsample, kernelLimit));
+    }
+
+    /**
+     * @return The radius the plan was created for.
+     */
+    public int getRequestedRadius() {
+        return mRequestedRadius;
+    }
+
+    /**
+     * @return The downsample factor to capture with, including the extra downsample step.
+     */
+    public float getDownsampleFactor() {
+        return mDownsampleFactor * mExtraDownsample;
+    }
+
+    /**
+     * @return The extra downsample step applied on top of the caller's downsample factor. 1 if none is needed.
+     */
+    public int getExtraDownsample() {
+        return mExtraDownsample;
+    }
+
+    /**
+     * @return The kernel radius to blur the bitmap captured at {@link #getDownsampleFactor()} with.
+     */
+    public int getRadius() {
+        return mRadius;
+    }
+
+    /**
+     * Converts another radius to the resolution of this plan, for blurring bitmaps captured with this plan at a
+     * smaller radius than the planned one, like during frost animations.
+     *
+     * @param radius A radius no larger than the requested radius of this plan.
+     * @return The kernel radius to use at the downsample factor of this plan.
+     */
+    public int scaleRadius(int radius) {
+        return scaleRadius(radius, mExtraDownsample, mRadius);
+    }
+
+    private static int scaleRadius(int radius, int extraDownsample, int maxRadius) {
+        final int scaled = (radius + extraDownsample / 2) / extraDownsample;
+        return Math.max(1, Math.min(scaled, maxRadius));
+    }
+
+    @Override
+    public String toString() {
+        return "BlurPlan{radius=" + mRequestedRadius + ", downsample=" + getDownsampleFactor() + ", kernel="
+                + mRadius + "}";
+    }
+}
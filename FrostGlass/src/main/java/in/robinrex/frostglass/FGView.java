@@ -2,10 +2,8 @@ package in.robinrex.frostglass;
 
 import android.content.Context;
 import android.content.res.TypedArray;
-import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.drawable.ColorDrawable;
 import android.support.annotation.IntRange;
 import android.util.AttributeSet;
 import android.view.Choreographer;
@@ -21,7 +19,11 @@ public class FGView extends View implements Choreographer.FrameCallback {
 
     private boolean mLive = false;
 
-    private boolean mEdgePaddingEnabled = false;
+    private int mFrostPriority = FrostScheduler.PRIORITY_DEFAULT;
+
+    private final FramePacer mFramePacer = new FramePacer();
+
+    private final FrostRenderer mRenderer = new FrostRenderer(this);
 
     public FGView(Context context) {
         this(context, null);
@@ -41,36 +43,110 @@ public class FGView extends View implements Choreographer.FrameCallback {
         setDownsampleFactor(a.getInt(R.styleable.FGView_downSampleFactor,
                 defaultDownsampleFactor));
         setOverlayColor(a.getColor(R.styleable.FGView_overlayColor, defaultOverlayColor));
+        setFrostBackend(FrostEngine.getInstance().getBackend(
+                FrostRenderer.backendForAttribute(a.getInt(R.styleable.FGView_frostBackend, 0))));
+        setOpaqueFrost(a.getBoolean(R.styleable.FGView_opaqueFrost, false));
+        setPlatformFrost(a.getBoolean(R.styleable.FGView_platformFrost, true));
+        setScrollAwareFrost(a.getBoolean(R.styleable.FGView_scrollAwareFrost, false));
         a.recycle();
 
     }
 
     public void frostWith(View blurredView) {
-        mBlurredView = blurredView;
+        mRenderer.setBlurredView(blurredView);
+    }
+
+    /**
+     * Frosts the view of a source shared with other glass views, so that the view is captured and blurred once per
+     * frame for all of them. The blur radius, quality and backend are then set on the source.
+     *
+     * @param source The shared source, obtained with {@link FrostSource#of(View)}.
+     */
+    public void frostWith(FrostSource source) {
+        mRenderer.setSource(source);
     }
 
     public void setEdgePadding(boolean enabled) {
-        mEdgePaddingEnabled = enabled;
+        mRenderer.setEdgePadding(enabled);
     }
 
+    /**
+     * Sets the blur radius. Radii larger than the backend supports are reached with an extra downsample step, see
+     * {@link FrostEngine#planBlur(int, float, FrostBackend)}.
+     *
+     * @param radius The blur radius, in pixels of the downsampled content.
+     */
     public void setBlurRadius(int radius) {
-        mBlurRadius = radius;
+        mRenderer.setBlurRadius(radius);
     }
 
     public void setDownsampleFactor(@IntRange(from = 1, to = 100) int factor) {
-        if (factor <= 0) {
-            throw new IllegalArgumentException("Downsample factor must be in the range 1-100." +
-                    "" + factor);
-        }
+        mRenderer.setDownsampleFactor(factor);
+    }
 
-        if (factor != mDownsampleFactor) {
-            mDownsampleFactor = factor;
-            mDownsampleFactorChanged = true;
-        }
+    /**
+     * Lets the downsample factor adapt so that frosting a frame stays within the given budget, starting from the factor
+     * set by {@link #setDownsampleFactor(int)}. The blur radius is scaled along, so the blur keeps its size.
+     *
+     * @param frameBudgetMillis The time frosting a frame should take, in milliseconds. For example 4.
+     */
+    public void enableAdaptiveQuality(float frameBudgetMillis) {
+        mRenderer.enableAdaptiveQuality((long) (frameBudgetMillis * 1000000));
+    }
+
+    /**
+     * Goes back to the downsample factor and radius set by hand.
+     */
+    public void disableAdaptiveQuality() {
+        mRenderer.disableAdaptiveQuality();
     }
 
     public void setOverlayColor(int color) {
-        mOverlayColor = color;
+        mRenderer.setOverlayColor(color);
+    }
+
+    /**
+     * Sets the backend used to blur the frosted view. Can also be set with the {@code frostBackend} attribute.
+     *
+     * @param backend The backend, usually obtained from {@link FrostEngine#getBackend(FrostEngine.Backend)}.
+     */
+    public void setFrostBackend(FrostBackend backend) {
+        mRenderer.setFrostBackend(backend);
+    }
+
+    /**
+     * Enables or disables the opaque mode, in which the frosted view is captured and blurred in RGB_565. This halves
+     * the memory and the copy traffic of the blur, but drops the alpha channel, so it is meant for opaque content. Can
+     * also be set with the {@code opaqueFrost} attribute.
+     *
+     * @param opaque True to capture in RGB_565.
+     */
+    public void setOpaqueFrost(boolean opaque) {
+        mRenderer.setOpaque(opaque);
+    }
+
+    /**
+     * Enables or disables the platform blur. From API 31, hardware accelerated glass views are frosted by the platform
+     * renderer, which blurs on the GPU and never copies the content into bitmaps. The bitmap backends are used on older
+     * devices, when this is disabled, and for shared sources. Enabled by default, and can also be set with the
+     * {@code platformFrost} attribute.
+     *
+     * @param enabled False to always frost with the bitmap backends.
+     */
+    public void setPlatformFrost(boolean enabled) {
+        mRenderer.setPlatformFrostEnabled(enabled);
+    }
+
+    /**
+     * Enables or disables the scroll aware mode, meant for glass over scrolling content. When the content behind the
+     * glass has only scrolled vertically since the previous frame, the previous frosted result is moved along, and only
+     * the newly exposed rows are blurred. The glass is then always frosted with the Java backend. Can also be set with
+     * the {@code scrollAwareFrost} attribute.
+     *
+     * @param scrollAware True to enable the scroll aware mode.
+     */
+    public void setScrollAwareFrost(boolean scrollAware) {
+        mRenderer.setScrollAware(scrollAware);
     }
 
     public void enableLiveMode() {
@@ -81,133 +157,94 @@ public class FGView extends View implements Choreographer.FrameCallback {
         setLiveMode(false);
     }
 
-    @Override
-    protected void dispatchDraw(Canvas canvas) {
-        super.dispatchDraw(canvas);
-
-        Logger.debug("What?");
-    }
-
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-        if (mBlurredView != null) {
-            if (prepare()) {
-
-                // If the background of the blurred view is a color drawable, we use it to clear
-                // the blurring canvas, which ensures that edges of the child views are blurred
-                // as well; otherwise we clear the blurring canvas with a transparent color.
-                if (mBlurredView.getBackground() != null && mBlurredView.getBackground() instanceof ColorDrawable) {
-                    mBitmapToBlur.eraseColor(((ColorDrawable) mBlurredView.getBackground()).getColor());
-                } else {
-                    mBitmapToBlur.eraseColor(Color.TRANSPARENT);
-                }
-
-                mBlurredView.draw(mBlurringCanvas);
-                blur();
-
-                canvas.save();
-                canvas.translate(mBlurredView.getX() - getX(), mBlurredView.getY() - getY());
-                canvas.scale(mDownsampleFactor, mDownsampleFactor);
-                canvas.drawBitmap(mBlurredBitmap, 0, 0, null);
-                canvas.restore();
-            }
-            canvas.drawColor(mOverlayColor);
-        }
+        mRenderer.draw(canvas);
     }
 
     private void setLiveMode(boolean enabled) {
 
         if (enabled) {
-            Choreographer.getInstance().postFrameCallback(this);
+            mFramePacer.reset();
+            FrostScheduler.getInstance().postFrameCallback(this, mFrostPriority);
             invalidate();
         } else {
-            Choreographer.getInstance().removeFrameCallback(this);
+            FrostScheduler.getInstance().removeFrameCallback(this);
         }
 
         mLive = enabled;
+        mRenderer.setLive(enabled);
     }
 
     public boolean isLive() {
         return mLive;
     }
 
-    protected boolean prepare() {
-        final int width = mBlurredView.getWidth();
-        final int height = mBlurredView.getHeight();
-
-        if (mBlurringCanvas == null || mDownsampleFactorChanged
-                || mBlurredViewWidth != width || mBlurredViewHeight != height) {
-            mDownsampleFactorChanged = false;
-
-            mBlurredViewWidth = width;
-            mBlurredViewHeight = height;
-
-            int scaledWidth = width / mDownsampleFactor;
-            int scaledHeight = height / mDownsampleFactor;
-
-            // The following manipulation is to avoid some RenderScript artifacts at the edge.
-            if (mEdgePaddingEnabled) {
-                scaledWidth = scaledWidth - scaledWidth % 4 + 4;
-                scaledHeight = scaledHeight - scaledHeight % 4 + 4;
-            }
-
-            if (mBlurredBitmap == null
-                    || mBlurredBitmap.getWidth() != scaledWidth
-                    || mBlurredBitmap.getHeight() != scaledHeight) {
-                mBitmapToBlur = Bitmap.createBitmap(scaledWidth, scaledHeight,
-                        Bitmap.Config.ARGB_8888);
-                if (mBitmapToBlur == null) {
-                    return false;
-                }
-
-                mBlurredBitmap = Bitmap.createBitmap(scaledWidth, scaledHeight,
-                        Bitmap.Config.ARGB_8888);
-                if (mBlurredBitmap == null) {
-                    return false;
-                }
-            }
-
-            mBlurringCanvas = new Canvas(mBitmapToBlur);
-            mBlurringCanvas.scale(1f / mDownsampleFactor, 1f / mDownsampleFactor);
-        }
-        return true;
+    /**
+     * Caps the rate at which live mode frosts the view again. The previous result stays on screen on the frames in
+     * between, which are skipped at even intervals of the display refresh.
+     *
+     * @param fps The highest number of frames frosted per second, for example 30, or 0 to frost every frame.
+     */
+    public void setLiveFrameRate(@IntRange(from = 0) int fps) {
+        mFramePacer.setFrameRate(fps);
     }
 
-    protected void blur() {
-        mBlurredBitmap = FrostEngine.getInstance().frost(mBitmapToBlur, mBlurRadius);
+    /**
+     * Sets the priority of this view in the {@link FrostScheduler}. When the frost work of a frame goes over the
+     * budget, views with a lower priority are the first to be updated a frame later.
+     *
+     * @param priority The priority. Higher priorities are rendered first. Defaults to
+     *                 {@link FrostScheduler#PRIORITY_DEFAULT}.
+     */
+    public void setFrostPriority(int priority) {
+        mFrostPriority = priority;
     }
 
-    @Override
-    protected void onDetachedFromWindow() {
-        super.onDetachedFromWindow();
-
-        // TODO: 25/6/17 Destroy renderscript if possible, here
+    /**
+     * @return The number of frames that reused the previous blurred result, because the content of the frosted view
+     * had not changed.
+     */
+    public int getSkippedFrameCount() {
+        return mRenderer.getSkippedFrameCount();
     }
 
-    private int mDownsampleFactor;
-
-    private int mOverlayColor;
-
-    private View mBlurredView;
+    protected boolean prepare() {
+        return mRenderer.prepare();
+    }
 
-    private int mBlurredViewWidth, mBlurredViewHeight;
+    protected void blur() {
+        mRenderer.blur();
+    }
 
-    private boolean mDownsampleFactorChanged;
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mRenderer.onAttached();
 
-    private Bitmap mBitmapToBlur, mBlurredBitmap;
+        if (mLive) {
+            FrostScheduler.getInstance().postFrameCallback(this, mFrostPriority);
+        }
+    }
 
-    private Canvas mBlurringCanvas;
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
 
-    private int mBlurRadius = 1;
+        // Detached views stop rendering and give their buffers back right away.
+        FrostScheduler.getInstance().removeFrameCallback(this);
+        mRenderer.onDetached();
+    }
 
     @Override
     public void doFrame(long frameTimeNanos) {
-        invalidate();
-
-        Logger.debug("Invalidating");
+        // Live frames are rendered here, in the order set by the scheduler, and only drawn in the next traversal.
+        if (mFramePacer.shouldRender(frameTimeNanos) && mRenderer.render()) {
+            invalidate();
+        }
 
         if (mLive)
-            Choreographer.getInstance().postFrameCallback(this);
+            FrostScheduler.getInstance().postFrameCallback(this, mFrostPriority);
     }
 }
\ No newline at end of file
@@ -0,0 +1,102 @@
+package in.robinrex.frostglass;
+
+/**
+ * Computes cheap checksums over sampled pixels of captured frames, used to tell whether the content behind a glass
+ * has changed since the previous frame.
+ * <p/>
+ * This class does not depend on the Android framework, so it can be used and tested on any JVM.
+ *
+ * @author Robin Rex G.
+ */
+public final class FrameChecksum {
+
+    /**
+     * The checksum of an empty frame.
+     */
+    public static final long EMPTY = 0xCBF29CE484222325L;
+
+    private static final long PRIME = 0x100000001B3L;
+
+    private FrameChecksum() {
+        //Prevent object creation.
+    }
+
+    /**
+     * Folds every {@code step}-th pixel of the given row into a running checksum.
+     *
+     * @param checksum The checksum of the rows sampled so far, or {@link #EMPTY} for the first row.
+     * @param row      The pixels of the row.
+     * @param width    The number of pixels in the row.
+     * @param step     The distance between two sampled pixels. 1 samples every pixel.
+     * @return The updated checksum.
+     */
+    public static long update(long checksum, int[] row, int width, int step) {
+        for (int x = 0; x < width; x += step) {
+            checksum = (checksum ^ row[x]) * PRIME;
+        }
+        return checksum;
+    }
+
+    /**
+     * Folds a single value, like the checksum of a row, into a running checksum.
+     *
+     * @param checksum The checksum so far, or {@link #EMPTY}.
+     * @param value    The value to fold in.
+     * @return The updated checksum.
+     */
+    public static long update(long checksum, long value) {
+        return (checksum ^ value) * PRIME;
+    }
+
+    /**
+     * Finds the vertical translation between two frames from the checksums of their rows. The frames are a
+     * translation of each other by {@code shift} if {@code current[y] == previous[y + shift]} for every row y present
+     * in both. When several shifts match, as in frames with repeated rows, the smallest one is returned.
+     *
+     * @param previous The row checksums of the previous frame.
+     * @param current  The row checksums of the current frame.
+     * @param height   The number of rows in both frames.
+     * @param maxShift The largest shift looked for, in either direction.
+     * @return The number of rows the content moved up, or down if negative, or 0 if the frames are not a translation
+     * of each other.
+     */
+    public static int findShift(long[] previous, long[] current, int height, int maxShift) {
+        maxShift = Math.min(maxShift, height - 1);
+
+        for (int distance = 1; distance <= maxShift; distance++) {
+            if (matchesShift(previous, current, height, distance)) {
+                return distance;
+            }
+            if (matchesShift(previous, current, height, -distance)) {
+                return -distance;
+            }
+        }
+
+        return 0;
+    }
+
+    private static boolean matchesShift(long[] previous, long[] current, int height, int shift) {
+        final int from = Math.max(0, -shift);
+        final int to = Math.min(height, height - shift);
+
+        for (int y = from; y < to; y++) {
+            if (current[y] != previous[y + shift]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the distance between sampled rows or pixels, so that no more than {@code maxSamples} of {@code length}
+     * are sampled.
+     *
+     * @param length     The number of rows or pixels available.
+     * @param maxSamples The largest number of samples wanted.
+     * @return The sampling step, at least 1.
+     */
+    public static int step(int length, int maxSamples) {
+        return Math.max(1, (length + maxSamples - 1) / maxSamples);
+    }
+}
@@ -0,0 +1,88 @@
+package in.robinrex.frostglass;
+
+/**
+ * Decides which vsync frames live frosting renders, to cap it at a frame rate below the refresh rate of the display.
+ * <p/>
+ * Frames are chosen from the vsync timestamps given to the frame callbacks, against a schedule that advances by whole
+ * frame intervals, so that the rendered frames stay evenly spaced instead of drifting with the callback timing. A frame
+ * is rendered when it is less than half a vsync period early, which absorbs the jitter of the timestamps.
+ *
+ * @author Robin Rex G.
+ */
+class FramePacer {
+
+    private long mIntervalNanos;
+
+    private long mNextFrameNanos;
+
+    private long mLastVsyncNanos;
+
+    private long mVsyncPeriodNanos;
+
+    private boolean mStarted;
+
+    /**
+     * @param fps The highest number of frames rendered per second, or 0 to render every frame.
+     */
+    void setFrameRate(int fps) {
+        if (fps < 0) {
+            throw new IllegalArgumentException("Frame rate must not be negative." + fps);
+        }
+
+        mIntervalNanos = fps == 0 ? 0 : 1000000000L / fps;
+        reset();
+    }
+
+    /**
+     * @return The highest number of frames rendered per second, or 0 if every frame is rendered.
+     */
+    int getFrameRate() {
+        return mIntervalNanos == 0 ? 0 : (int) Math.round(1000000000.0 / mIntervalNanos);
+    }
+
+    /**
+     * Restarts the schedule, so that the next frame is rendered.
+     */
+    void reset() {
+        mStarted = false;
+        mLastVsyncNanos = 0;
+        mVsyncPeriodNanos = 0;
+    }
+
+    /**
+     * Called once per vsync frame.
+     *
+     * @param frameTimeNanos The vsync timestamp of the frame, as given to the frame callback.
+     * @return True if the frame should be rendered, false if the previous result should be kept on screen.
+     */
+    boolean shouldRender(long frameTimeNanos) {
+        if (mLastVsyncNanos != 0 && frameTimeNanos > mLastVsyncNanos) {
+            mVsyncPeriodNanos = frameTimeNanos - mLastVsyncNanos;
+        }
+        mLastVsyncNanos = frameTimeNanos;
+
+        if (mIntervalNanos == 0) {
+            return true;
+        }
+
+        if (!mStarted) {
+            mStarted = true;
+            mNextFrameNanos = frameTimeNanos + mIntervalNanos;
+            return true;
+        }
+
+        final long tolerance = Math.min(mVsyncPeriodNanos, mIntervalNanos) / 2;
+        if (frameTimeNanos < mNextFrameNanos - tolerance) {
+            return false;
+        }
+
+        // Frames missed by more than an interval restart the schedule instead of being caught up with.
+        if (frameTimeNanos - mNextFrameNanos >= mIntervalNanos) {
+            mNextFrameNanos = frameTimeNanos + mIntervalNanos;
+        } else {
+            mNextFrameNanos += mIntervalNanos;
+        }
+
+        return true;
+    }
+}
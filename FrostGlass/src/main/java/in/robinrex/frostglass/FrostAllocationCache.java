@@ -0,0 +1,120 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.support.v8.renderscript.Allocation;
+import android.support.v8.renderscript.Element;
+import android.support.v8.renderscript.RenderScript;
+import android.support.v8.renderscript.ScriptIntrinsicBlur;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small LRU cache of Renderscript allocations and blur scripts, keyed by bitmap dimensions and config. Frosting a
+ * bitmap of a size that has been frosted recently reuses the cached native objects instead of creating new ones.
+ *
+ * @author Robin Rex G.
+ */
+class FrostAllocationCache {
+
+    /**
+     * The default number of distinct bitmap sizes kept alive at a time.
+     */
+    static final int DEFAULT_MAX_ENTRIES = 4;
+
+    private final RenderScript mRenderScript;
+
+    private final int mMaxEntries;
+
+    private final LinkedHashMap<Long, Entry> mEntries;
+
+    /**
+     * The native objects needed to frost a bitmap of one particular size and config.
+     */
+    static final class Entry {
+
+        final Allocation input;
+
+        final Allocation output;
+
+        final ScriptIntrinsicBlur script;
+
+        private Entry(RenderScript rs, Bitmap bitmap) {
+            input = Allocation.createFromBitmap(rs, bitmap, Allocation.MipmapControl.MIPMAP_NONE,
+                    Allocation.USAGE_SCRIPT);
+            output = Allocation.createTyped(rs, input.getType());
+            script = ScriptIntrinsicBlur.create(rs, Element.U8_4(rs));
+            script.setInput(input);
+        }
+
+        private void destroy() {
+            script.destroy();
+            output.destroy();
+            input.destroy();
+        }
+    }
+
+    FrostAllocationCache(RenderScript rs, int maxEntries) {
+        mRenderScript = rs;
+        mMaxEntries = maxEntries;
+        mEntries = new LinkedHashMap<>(maxEntries + 1, 1f, true);
+    }
+
+    /**
+     * Returns the cached entry for the size and config of the given bitmap, creating one if it does not exist. When
+     * the cache is full, the least recently used entry is destroyed.
+     *
+     * @param bitmap The bitmap that is about to be frosted.
+     * @return An entry whose allocations match the given bitmap.
+     */
+    Entry obtain(Bitmap bitmap) {
+        return obtain(bitmap, 0);
+    }
+
+    /**
+     * Same as {@link #obtain(Bitmap)}, but keeps several entries for the same size and config, so that a bitmap can be
+     * uploaded into one while another is still being blurred.
+     *
+     * @param bitmap The bitmap that is about to be frosted.
+     * @param slot   The entry of the size to be returned, between 0 and 255.
+     * @return An entry whose allocations match the given bitmap.
+     */
+    Entry obtain(Bitmap bitmap, int slot) {
+        // Widths never reach the top byte of the key, which holds the slot.
+        final Long key = keyFor(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig()) | (long) slot << 56;
+        Entry entry = mEntries.get(key);
+
+        if (entry == null) {
+            entry = new Entry(mRenderScript, bitmap);
+            mEntries.put(key, entry);
+            trimToSize(mMaxEntries);
+        }
+
+        return entry;
+    }
+
+    /**
+     * Destroys every cached allocation and script.
+     */
+    void clear() {
+        trimToSize(0);
+    }
+
+    int size() {
+        return mEntries.size();
+    }
+
+    private void trimToSize(int maxEntries) {
+        final Iterator<Map.Entry<Long, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mEntries.size() > maxEntries && iterator.hasNext()) {
+            iterator.next().getValue().destroy();
+            iterator.remove();
+        }
+    }
+
+    static long keyFor(int width, int height, Bitmap.Config config) {
+        final int configIndex = config == null ? 0xFF : config.ordinal();
+        return ((long) width << 32) | ((long) (height & 0xFFFFFF) << 8) | configIndex;
+    }
+}
@@ -0,0 +1,49 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.support.annotation.ColorInt;
+
+/**
+ * A blur implementation used by the {@link FrostEngine} to frost bitmaps. Instances are shared between every
+ * {@link FrostGlass}, {@link FGView} and {@link FGLayout} that uses them, so implementations have to be safe to call
+ * from multiple threads.
+ *
+ * @author Robin Rex G.
+ * @see FrostEngine#getBackend(FrostEngine.Backend)
+ */
+public interface FrostBackend {
+
+    /**
+     * Blurs the input bitmap into the output bitmap.
+     *
+     * @param input  The bitmap to be blurred.
+     * @param output The bitmap that receives the result. It has to be of the same size as the input, and may be the
+     *               input bitmap itself.
+     * @param radius The blur radius, between 1 and {@link #getMaxRadius()}.
+     * @return The output bitmap.
+     */
+    Bitmap frost(Bitmap input, Bitmap output, int radius);
+
+    /**
+     * Blurs the input bitmap into the output bitmap, and draws the overlay color over the result in the same pass.
+     *
+     * @param input        The bitmap to be blurred.
+     * @param output       The bitmap that receives the result. It has to be of the same size as the input, and may be
+     *                     the input bitmap itself.
+     * @param radius       The blur radius, between 1 and {@link #getMaxRadius()}.
+     * @param overlayColor The color drawn over the blurred result. A fully transparent color draws nothing.
+     * @return The output bitmap.
+     */
+    Bitmap frost(Bitmap input, Bitmap output, int radius, @ColorInt int overlayColor);
+
+    /**
+     * @return The largest blur radius supported by this backend.
+     */
+    int getMaxRadius();
+
+    /**
+     * Releases the native resources and buffers held by this backend. The backend stays usable, and creates them
+     * again the next time it frosts a bitmap.
+     */
+    void release();
+}
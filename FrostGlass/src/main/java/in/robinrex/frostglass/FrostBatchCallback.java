@@ -0,0 +1,30 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+
+import java.util.List;
+
+/**
+ * Receives the results of a batch frost, see {@link FrostEngine#frostAll(List, int, FrostBackend,
+ * FrostBatchCallback)}. Always called on the main thread.
+ *
+ * @author Robin Rex G.
+ */
+public interface FrostBatchCallback {
+
+    /**
+     * Called as soon as one bitmap of the batch is frosted. Bitmaps are not necessarily reported in the order of the
+     * list.
+     *
+     * @param index   The index of the bitmap in the list.
+     * @param frosted The frosted bitmap, which is the bitmap of the list, frosted in place.
+     */
+    void onFrosted(int index, Bitmap frosted);
+
+    /**
+     * Called once every bitmap of the batch has been frosted and reported, unless the batch has been cancelled.
+     *
+     * @param frosted The frosted bitmaps, in the order of the list.
+     */
+    void onBatchFrosted(List<Bitmap> frosted);
+}
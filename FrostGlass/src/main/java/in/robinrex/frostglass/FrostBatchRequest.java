@@ -0,0 +1,108 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * A batch frost run on the executor of the {@link FrostEngine}. Every bitmap is handed to a {@link FrostBatchCallback}
+ * on the main thread as soon as it is frosted, and the whole list is also available through the
+ * {@link java.util.concurrent.Future} interface.
+ * <p/>
+ * Cancelling the request stops the batch before the bitmaps that have not been started, and silences the callback.
+ *
+ * @author Robin Rex G.
+ */
+class FrostBatchRequest extends FutureTask<List<Bitmap>> {
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private final FrostBatchCallback mCallback;
+
+    /**
+     * Frosts the bitmaps, and reports every frosted bitmap to its request.
+     */
+    private static class Batch implements Callable<List<Bitmap>>, BatchFrostBackend.Listener {
+
+        final FrostEngine engine;
+
+        final List<Bitmap> bitmaps;
+
+        final int radius;
+
+        final FrostBackend backend;
+
+        FrostBatchRequest request;
+
+        Batch(FrostEngine engine, List<Bitmap> bitmaps, int radius, FrostBackend backend) {
+            this.engine = engine;
+            this.bitmaps = bitmaps;
+            this.radius = radius;
+            this.backend = backend;
+        }
+
+        @Override
+        public List<Bitmap> call() throws Exception {
+            engine.frostBatch(bitmaps, radius, backend, this);
+
+            if (!request.isCancelled()) {
+                request.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        request.mCallback.onBatchFrosted(Collections.unmodifiableList(bitmaps));
+                    }
+                });
+            }
+            return bitmaps;
+        }
+
+        @Override
+        public boolean onFrosted(final int index, final Bitmap frosted) {
+            if (request.isCancelled()) {
+                return false;
+            }
+
+            request.post(new Runnable() {
+                @Override
+                public void run() {
+                    request.mCallback.onFrosted(index, frosted);
+                }
+            });
+            return true;
+        }
+    }
+
+    FrostBatchRequest(FrostEngine engine, List<Bitmap> bitmaps, int radius, FrostBackend backend,
+                      FrostBatchCallback callback) {
+        this(new Batch(engine, bitmaps, radius, backend), callback);
+    }
+
+    private FrostBatchRequest(Batch batch, FrostBatchCallback callback) {
+        super(batch);
+        batch.request = this;
+        mCallback = callback;
+    }
+
+    /**
+     * Runs the given call of the callback on the main thread, unless the request is cancelled by then.
+     */
+    private void post(final Runnable call) {
+        if (mCallback == null) {
+            return;
+        }
+
+        sMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!isCancelled()) {
+                    call.run();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,169 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A pool of bitmaps used for capturing and frosting views. Bitmaps are bucketed by width, height and config, and the
+ * total size of the pooled bitmaps is kept under a byte budget by evicting the least recently used buckets first.
+ * <p/>
+ * A bitmap handed back through {@link #release(Bitmap)} must no longer be used or displayed by the caller, and handing
+ * back a bitmap that is already pooled is rejected, since it would later be handed out to two callers at once.
+ *
+ * @author Robin Rex G.
+ */
+public class FrostBitmapPool {
+
+    /**
+     * The default memory budget of the pool, in bytes.
+     */
+    public static final long DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+    private final LinkedHashMap<Long, ArrayDeque<Bitmap>> mBuckets = new LinkedHashMap<>(8, 0.75f, true);
+
+    /**
+     * The pooled bitmaps, by identity, to catch a bitmap being released twice.
+     */
+    private final Set<Bitmap> mPooled = Collections.newSetFromMap(new IdentityHashMap<Bitmap, Boolean>());
+
+    private long mMaxBytes;
+
+    private long mCurrentBytes;
+
+    private int mHitCount;
+
+    private int mMissCount;
+
+    public FrostBitmapPool() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public FrostBitmapPool(long maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a bitmap of the given size and config, reusing a pooled bitmap if one is available. The contents of a
+     * reused bitmap are undefined, so callers are expected to clear or fully overwrite it.
+     *
+     * @param width  The width of the bitmap.
+     * @param height The height of the bitmap.
+     * @param config The config of the bitmap.
+     * @return A bitmap of the requested size and config.
+     */
+    public synchronized Bitmap acquire(int width, int height, Bitmap.Config config) {
+        final ArrayDeque<Bitmap> bucket = mBuckets.get(FrostAllocationCache.keyFor(width, height, config));
+        final Bitmap pooled = bucket == null ? null : bucket.pollLast();
+
+        if (pooled != null) {
+            mHitCount++;
+            mPooled.remove(pooled);
+            mCurrentBytes -= pooled.getAllocationByteCount();
+            return pooled;
+        }
+
+        mMissCount++;
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Returns a bitmap to the pool, so that it can be handed out again by {@link #acquire(int, int, Bitmap.Config)}.
+     * If the pool grows over its budget, the least recently used bitmaps are recycled.
+     *
+     * @param bitmap The bitmap to be pooled. Null and recycled bitmaps are ignored.
+     * @throws IllegalArgumentException If the bitmap is already pooled.
+     */
+    public synchronized void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+
+        if (mPooled.contains(bitmap)) {
+            throw new IllegalArgumentException("Bitmap released twice: " + bitmap);
+        }
+
+        final int size = bitmap.getAllocationByteCount();
+        if (size > mMaxBytes) {
+            bitmap.recycle();
+            return;
+        }
+
+        final Long key = FrostAllocationCache.keyFor(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        ArrayDeque<Bitmap> bucket = mBuckets.get(key);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            mBuckets.put(key, bucket);
+        }
+
+        bucket.addLast(bitmap);
+        mPooled.add(bitmap);
+        mCurrentBytes += size;
+        trimToSize(mMaxBytes);
+    }
+
+    /**
+     * Sets the memory budget of the pool. Pooled bitmaps over the new budget are recycled right away.
+     *
+     * @param maxBytes The maximum number of bytes the pooled bitmaps may occupy.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        mMaxBytes = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    public synchronized long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    /**
+     * @return The number of bytes currently held by pooled bitmaps.
+     */
+    public synchronized long getCurrentBytes() {
+        return mCurrentBytes;
+    }
+
+    /**
+     * @return The number of acquire calls that were served with a pooled bitmap.
+     */
+    public synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    /**
+     * @return The number of acquire calls that had to create a new bitmap.
+     */
+    public synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * Recycles every pooled bitmap.
+     */
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    private void trimToSize(long maxBytes) {
+        final Iterator<Map.Entry<Long, ArrayDeque<Bitmap>>> iterator = mBuckets.entrySet().iterator();
+        while (mCurrentBytes > maxBytes && iterator.hasNext()) {
+            final ArrayDeque<Bitmap> bucket = iterator.next().getValue();
+            while (mCurrentBytes > maxBytes && !bucket.isEmpty()) {
+                final Bitmap evicted = bucket.pollFirst();
+                mPooled.remove(evicted);
+                mCurrentBytes -= evicted.getAllocationByteCount();
+                evicted.recycle();
+            }
+
+            if (bucket.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+}
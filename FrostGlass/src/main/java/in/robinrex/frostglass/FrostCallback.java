@@ -0,0 +1,22 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.view.View;
+
+/**
+ * Receives the result of an asynchronous frost, see {@link FrostEngine#frostAsync(View, BlurPlan, FrostBackend,
+ * FrostCallback)}. Always called on the main thread.
+ *
+ * @author Robin Rex G.
+ */
+public interface FrostCallback {
+
+    /**
+     * Called with the frosted bitmap, unless the frost has been cancelled or superseded by a newer frost of the same
+     * view. The bitmap comes from the {@link FrostBitmapPool} of the engine, and can be handed back to it with
+     * {@link FrostEngine#releaseBitmap(Bitmap)} once it is no longer displayed.
+     *
+     * @param frosted The frosted bitmap.
+     */
+    void onFrosted(Bitmap frosted);
+}
@@ -0,0 +1,150 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+
+/**
+ * Tells whether a captured frame differs from the previously captured one, by comparing checksums of a sampled
+ * grid of its pixels. Used by live frosting to skip blurring frames whose source content has not changed.
+ * <p/>
+ * Downsampled captures are usually small enough to be sampled completely. Larger captures are sampled on a sparser
+ * grid, which keeps the check cheap at the risk of missing changes smaller than the grid.
+ * <p/>
+ * When rows are tracked, every row gets a checksum of its own, so that a frame that is the previous one scrolled
+ * vertically can be recognized, see {@link #getShift()}.
+ *
+ * @author Robin Rex G.
+ */
+class FrostChangeDetector {
+
+    /**
+     * The largest number of rows, and of pixels per row, sampled from a frame.
+     */
+    private static final int MAX_SAMPLES = 256;
+
+    private int[] mRow;
+
+    private boolean mHasChecksum;
+
+    private long mChecksum;
+
+    private int mWidth, mHeight;
+
+    private int mSkippedFrames;
+
+    private boolean mTrackRows;
+
+    private long[] mRowChecksums, mPreviousRowChecksums;
+
+    private int mShift;
+
+    /**
+     * Checks the given frame against the previous one, and remembers it for the next check.
+     *
+     * @param frame The captured, not yet blurred, frame.
+     * @return True if the frame differs from the previous one, or if there is no previous frame to compare with.
+     */
+    boolean hasChanged(Bitmap frame) {
+        final int width = frame.getWidth();
+        final int height = frame.getHeight();
+
+        if (mRow == null || mRow.length < width) {
+            mRow = new int[width];
+        }
+
+        long checksum = FrameChecksum.EMPTY;
+
+        if (mTrackRows) {
+            checksum = checksumRows(frame, width, height);
+        } else {
+            final int columnStep = FrameChecksum.step(width, MAX_SAMPLES);
+            final int rowStep = FrameChecksum.step(height, MAX_SAMPLES);
+            for (int y = 0; y < height; y += rowStep) {
+                frame.getPixels(mRow, 0, width, 0, y, width, 1);
+                checksum = FrameChecksum.update(checksum, mRow, width, columnStep);
+            }
+        }
+
+        final boolean sameSize = width == mWidth && height == mHeight;
+        final boolean changed = !mHasChecksum || checksum != mChecksum || !sameSize;
+
+        mShift = 0;
+        if (mTrackRows && changed && mHasChecksum && sameSize) {
+            mShift = FrameChecksum.findShift(mPreviousRowChecksums, mRowChecksums, height, height / 2);
+        }
+
+        if (mTrackRows) {
+            final long[] previous = mPreviousRowChecksums;
+            mPreviousRowChecksums = mRowChecksums;
+            mRowChecksums = previous;
+        }
+
+        mHasChecksum = true;
+        mChecksum = checksum;
+        mWidth = width;
+        mHeight = height;
+
+        if (!changed) {
+            mSkippedFrames++;
+        }
+
+        return changed;
+    }
+
+    /**
+     * Checksums every row of the frame on its own, and folds the row checksums into the checksum of the frame. Every
+     * pixel is sampled, since a scrolled frame is only updated where the rows do not match.
+     */
+    private long checksumRows(Bitmap frame, int width, int height) {
+        if (mRowChecksums == null || mRowChecksums.length < height) {
+            mRowChecksums = new long[height];
+            mPreviousRowChecksums = new long[height];
+            mHasChecksum = false;
+        }
+
+        long checksum = FrameChecksum.EMPTY;
+        for (int y = 0; y < height; y++) {
+            frame.getPixels(mRow, 0, width, 0, y, width, 1);
+            mRowChecksums[y] = FrameChecksum.update(FrameChecksum.EMPTY, mRow, width, 1);
+            checksum = FrameChecksum.update(checksum, mRowChecksums[y]);
+        }
+
+        return checksum;
+    }
+
+    /**
+     * Enables or disables tracking the checksum of every row, which lets {@link #getShift()} recognize scrolled frames.
+     * Every pixel is then read, however large the frame.
+     *
+     * @param trackRows True to track rows.
+     */
+    void setTrackRows(boolean trackRows) {
+        if (trackRows != mTrackRows) {
+            mTrackRows = trackRows;
+            reset();
+        }
+    }
+
+    /**
+     * @return The number of rows the content of the last changed frame moved up compared to the previous frame, or down
+     * if negative, or 0 if it was not a vertical scroll. Always 0 unless rows are tracked.
+     */
+    int getShift() {
+        return mShift;
+    }
+
+    /**
+     * Forgets the previous frame, so that the next frame is reported as changed. Called whenever something other than
+     * the source content affects the blurred result, like the radius or the backend.
+     */
+    void reset() {
+        mHasChecksum = false;
+        mShift = 0;
+    }
+
+    /**
+     * @return The number of frames found to be unchanged since this detector was created.
+     */
+    int getSkippedFrameCount() {
+        return mSkippedFrames;
+    }
+}
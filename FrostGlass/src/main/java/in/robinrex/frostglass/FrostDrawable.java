@@ -0,0 +1,164 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+
+/**
+ * The background of the frost view of a {@link FrostGlass}. It is set on the view once, and the frosted frames are
+ * swapped into it, so that live frosting neither creates a drawable per frame nor changes the background of the view,
+ * which would invalidate more than the drawable itself.
+ * <p/>
+ * The drawable holds a front buffer, which is drawn, and a back buffer, which the next frame is captured and blurred
+ * into. Both come from a {@link FrostBitmapPool}, and are only handed back to it when their size changes or when the
+ * drawable is released. The drawable can also show a bitmap it does not own, like the front buffer of a
+ * {@link FrostPipeline}, which it then never hands back.
+ * <p/>
+ * Every method has to be called on the UI thread.
+ *
+ * @author Robin Rex G.
+ */
+class FrostDrawable extends Drawable {
+
+    private final FrostBitmapPool mBitmapPool;
+
+    private final FrostMetrics mMetrics;
+
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private Bitmap mFront, mBack;
+
+    /**
+     * False while the front buffer is borrowed.
+     */
+    private boolean mOwnsFront = true;
+
+    /**
+     * @param bitmapPool The pool the buffers are taken from and handed back to.
+     * @param metrics    The metrics the drawing of the frosted frames is recorded in.
+     */
+    FrostDrawable(FrostBitmapPool bitmapPool, FrostMetrics metrics) {
+        mBitmapPool = bitmapPool;
+        mMetrics = metrics;
+    }
+
+    /**
+     * @return The bitmap drawn, or null if there is none.
+     */
+    Bitmap getBitmap() {
+        return mFront;
+    }
+
+    /**
+     * Draws the given bitmap from now on, and takes its ownership. The bitmap drawn until now is handed back to the
+     * pool, unless it was borrowed. Setting the bitmap already drawn takes its ownership if it was borrowed.
+     *
+     * @param bitmap The bitmap to be drawn.
+     */
+    void setBitmap(Bitmap bitmap) {
+        replaceFront(bitmap);
+        mOwnsFront = true;
+    }
+
+    /**
+     * Draws the given bitmap from now on, without taking its ownership. The bitmap drawn until now is handed back to
+     * the pool, unless it was borrowed as well.
+     *
+     * @param bitmap The bitmap to be drawn, which its owner must not recycle while it is drawn.
+     */
+    void setBorrowedBitmap(Bitmap bitmap) {
+        replaceFront(bitmap);
+        mOwnsFront = false;
+    }
+
+    private void replaceFront(Bitmap bitmap) {
+        if (mFront != null && mFront != bitmap && mOwnsFront) {
+            mBitmapPool.release(mFront);
+        }
+
+        mFront = bitmap;
+        invalidateSelf();
+    }
+
+    /**
+     * Returns the back buffer, sized for the next frame. The buffer is kept between frames, and only replaced when the
+     * size or the config of the frames changes.
+     *
+     * @param width  The width of the next frame.
+     * @param height The height of the next frame.
+     * @param config The config of the next frame.
+     * @return The bitmap to capture and blur the next frame into.
+     */
+    Bitmap obtainBackBuffer(int width, int height, Bitmap.Config config) {
+        if (mBack != null && (mBack.getWidth() != width || mBack.getHeight() != height
+                || mBack.getConfig() != config)) {
+            mBitmapPool.release(mBack);
+            mBack = null;
+        }
+
+        if (mBack == null) {
+            mBack = mBitmapPool.acquire(width, height, config);
+        }
+
+        return mBack;
+    }
+
+    /**
+     * Draws the back buffer from now on, and keeps the bitmap drawn until now as the next back buffer, unless it was
+     * borrowed.
+     */
+    void swap() {
+        final Bitmap front = mFront;
+        mFront = mBack;
+        mBack = mOwnsFront ? front : null;
+        mOwnsFront = true;
+        invalidateSelf();
+    }
+
+    /**
+     * Hands both buffers back to the pool, except a borrowed front buffer. Nothing is drawn afterwards.
+     */
+    void release() {
+        if (mFront != null && mOwnsFront) {
+            mBitmapPool.release(mFront);
+        }
+
+        if (mBack != null) {
+            mBitmapPool.release(mBack);
+        }
+
+        mFront = null;
+        mBack = null;
+        mOwnsFront = true;
+        invalidateSelf();
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        if (mFront != null) {
+            final long start = System.nanoTime();
+            canvas.drawBitmap(mFront, null, getBounds(), mPaint);
+            mMetrics.record(FrostMetrics.Stage.DRAW, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mPaint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
@@ -1,28 +1,98 @@
 package in.robinrex.frostglass;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Matrix;
-import android.support.v8.renderscript.Allocation;
-import android.support.v8.renderscript.Element;
-import android.support.v8.renderscript.RenderScript;
-import android.support.v8.renderscript.ScriptIntrinsicBlur;
+import android.os.Process;
+import android.support.annotation.ColorInt;
 import android.view.View;
 
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
 /**
- * This is the core class that handles Renderscript functions and bitmap allocations.
+ * This is the core class that handles the blur backends and bitmap allocations.
+ * <p/>
+ * The engine is shared by every frosted view of the process. Its users hold a reference with {@link #acquire(Context)}
+ * and give it back with {@link #release()}, and the backends and pooled bitmaps are released once the last reference
+ * is gone. The engine also releases them when the system asks the app to trim its memory.
  *
  * @author Robin Rex G.
  */
-public class FrostEngine {
+public class FrostEngine implements ComponentCallbacks2 {
+
+    /**
+     * The default size of the tiles of {@link #frostTiled(View, BlurPlan, FrostBackend, int)}, in pixels of the
+     * downsampled capture.
+     */
+    public static final int DEFAULT_TILE_SIZE = 256;
 
     private static FrostEngine instance;
 
-    private RenderScript rs;
+    private Context mContext;
+
+    private FrostBackend mRenderScriptBackend;
+
+    private FrostBackend mJavaBackend;
+
+    private FrostBackend mKawaseBackend;
+
+    /**
+     * The second instances of the backends, which asynchronous frosts use, see {@link #getAsyncBackend(FrostBackend)}.
+     */
+    private FrostBackend mAsyncRenderScriptBackend, mAsyncJavaBackend, mAsyncKawaseBackend;
+
+    private final FrostBitmapPool mBitmapPool = new FrostBitmapPool();
+
+    private final FrostMetrics mMetrics = new FrostMetrics();
+
+    private final Canvas mCaptureCanvas = new Canvas();
+
+    private final Matrix mCaptureMatrix = new Matrix();
 
     private FrostMode mFrostMode = FrostMode.ORIGINAL;
 
+    private int mReferenceCount;
+
+    /**
+     * The number of threads asynchronous frosts run on. Kept low, since the UI thread and the render thread need the
+     * cores more.
+     */
+    private static final int ASYNC_THREADS = 2;
+
+    private ThreadPoolExecutor mAsyncExecutor;
+
+    /**
+     * The number of tiles of a tiled frost blurred at the same time, leaving a core to the main thread.
+     */
+    private static final int TILE_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors() - 1);
+
+    private ThreadPoolExecutor mTileExecutor;
+
+    /**
+     * The instances of the CPU backends the tile threads blur with, one per thread.
+     */
+    private FrostBackend[] mJavaTileBackends, mKawaseTileBackends;
+
+    /**
+     * The latest asynchronous frost of every view, which a newer frost of the same view supersedes. Only touched on
+     * the main thread.
+     */
+    private final Map<View, FrostRequest> mAsyncRequests = new WeakHashMap<>();
+
     private FrostEngine() {
         //Prevent object creation. Has to be accessed through FrostGlass.
     }
@@ -32,6 +102,25 @@ public class FrostEngine {
         ORIGINAL
     }
 
+    /**
+     * The blur backends provided by the engine.
+     */
+    public static enum Backend {
+        /**
+         * Blurs with the Renderscript blur intrinsic.
+         */
+        RENDERSCRIPT,
+        /**
+         * Blurs on the CPU with a parallel StackBlur, without Renderscript.
+         */
+        JAVA,
+        /**
+         * Blurs on the CPU with a dual Kawase blur, whose cost hardly grows with the radius. Meant for very soft
+         * frost, at radii of 40 and more.
+         */
+        KAWASE
+    }
+
     /**
      * Initializes the Frost engine.
      */
@@ -41,33 +130,311 @@ public class FrostEngine {
         }
 
         instance = new FrostEngine();
-        instance.rs = RenderScript.create(context);
+        instance.mContext = context.getApplicationContext();
+        instance.mContext.registerComponentCallbacks(instance);
     }
 
     /**
-     * Shuts down the Frost engine. And destroys the renderscript associated with it.
+     * Initializes the Frost engine if needed, and holds a reference to it until {@link #release()} is called.
+     *
+     * @param context Any context of the app.
+     * @return The engine.
      */
-    public void shutdown() {
-        rs.destroy();
+    public static FrostEngine acquire(Context context) {
+        init(context);
+
+        synchronized (instance) {
+            instance.mReferenceCount++;
+        }
+
+        return instance;
+    }
+
+    /**
+     * Gives back a reference taken with {@link #acquire(Context)}. When the last reference is given back, the engine
+     * is shut down. It is brought up again the next time it is used.
+     */
+    public synchronized void release() {
+        if (mReferenceCount == 0) {
+            throw new IllegalStateException("FrostEngine released more times than acquired.");
+        }
+
+        mReferenceCount--;
+        if (mReferenceCount == 0) {
+            shutdown();
+        }
     }
 
     /**
-     * Applies frosting effect to the given bitmap passed, with the given radius.
+     * @return The number of references currently held on the engine.
+     */
+    public synchronized int getReferenceCount() {
+        return mReferenceCount;
+    }
+
+    /**
+     * Shuts down the Frost engine, releasing the resources of its backends and its pooled bitmaps. The backends stay
+     * usable and create their resources again when used, so this is safe even while other views still hold them.
+     */
+    public synchronized void shutdown() {
+        if (mRenderScriptBackend != null) {
+            mRenderScriptBackend.release();
+        }
+
+        if (mJavaBackend != null) {
+            mJavaBackend.release();
+        }
+
+        if (mKawaseBackend != null) {
+            mKawaseBackend.release();
+        }
+
+        if (mAsyncRenderScriptBackend != null) {
+            mAsyncRenderScriptBackend.release();
+        }
+
+        if (mAsyncJavaBackend != null) {
+            mAsyncJavaBackend.release();
+        }
+
+        if (mAsyncKawaseBackend != null) {
+            mAsyncKawaseBackend.release();
+        }
+
+        releaseAll(mJavaTileBackends);
+        releaseAll(mKawaseTileBackends);
+
+        mBitmapPool.clear();
+    }
+
+    private static void releaseAll(FrostBackend[] backends) {
+        if (backends != null) {
+            for (FrostBackend backend : backends) {
+                backend.release();
+            }
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            // Renderscript contexts and allocations are the largest native resources of the engine.
+            shutdown();
+        } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            mBitmapPool.clear();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        shutdown();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+        //Do nothing
+    }
+
+    /**
+     * Returns the shared instance of the given backend, creating it on first use. Renderscript is only initialized
+     * when its backend is requested for the first time.
+     *
+     * @param backend The backend to be returned.
+     * @return The backend instance.
+     */
+    public synchronized FrostBackend getBackend(Backend backend) {
+        switch (backend) {
+            case JAVA:
+                if (mJavaBackend == null) {
+                    mJavaBackend = new JavaFrostBackend(mMetrics);
+                }
+                return mJavaBackend;
+
+            case KAWASE:
+                if (mKawaseBackend == null) {
+                    mKawaseBackend = new KawaseFrostBackend(mMetrics);
+                }
+                return mKawaseBackend;
+
+            case RENDERSCRIPT:
+            default:
+                if (mRenderScriptBackend == null) {
+                    mRenderScriptBackend = new RenderScriptBackend(mContext, mMetrics, getBackend(Backend.JAVA));
+                }
+                return mRenderScriptBackend;
+        }
+    }
+
+    /**
+     * Returns the backend that frosts on the background threads of the engine in place of the given one. The backends
+     * of the engine have a second instance for these threads, with its own lock and buffers, so that glass views never
+     * wait on their backend behind an asynchronous frost. Other backends are returned as they are.
+     *
+     * @param backend The backend the frost was requested with.
+     * @return The backend to frost with on a background thread.
+     */
+    synchronized FrostBackend getAsyncBackend(FrostBackend backend) {
+        if (backend == null) {
+            return null;
+        }
+
+        if (backend == mJavaBackend) {
+            if (mAsyncJavaBackend == null) {
+                mAsyncJavaBackend = new JavaFrostBackend(mMetrics);
+            }
+            return mAsyncJavaBackend;
+        }
+
+        if (backend == mKawaseBackend) {
+            if (mAsyncKawaseBackend == null) {
+                mAsyncKawaseBackend = new KawaseFrostBackend(mMetrics);
+            }
+            return mAsyncKawaseBackend;
+        }
+
+        if (backend == mRenderScriptBackend) {
+            if (mAsyncRenderScriptBackend == null) {
+                mAsyncRenderScriptBackend = new RenderScriptBackend(mContext, mMetrics,
+                        getAsyncBackend(getBackend(Backend.JAVA)));
+            }
+            return mAsyncRenderScriptBackend;
+        }
+
+        return backend;
+    }
+
+    /**
+     * @return The backend used when none is specified, which is the Renderscript backend.
+     */
+    public FrostBackend getDefaultBackend() {
+        return getBackend(Backend.RENDERSCRIPT);
+    }
+
+    /**
+     * Applies frosting effect to the given bitmap passed, with the given radius, using the default backend.
      *
      * @param src    The bitmap on which frosting has to be applied.
      * @param radius The radius of the frosting effect. (Blur radius).
      * @return The frosted bimap.
      */
     public Bitmap frost(Bitmap src, int radius) {
-        final Allocation input = Allocation.createFromBitmap(rs, src);
-        final Allocation output = Allocation.createTyped(rs, input.getType());
-        final ScriptIntrinsicBlur script;
-        script = ScriptIntrinsicBlur.create(rs, Element.U8_4(rs));
-        script.setRadius(radius);
-        script.setInput(input);
-        script.forEach(output);
-        output.copyTo(src);
-        return src;
+        return frost(src, radius, getDefaultBackend());
+    }
+
+    /**
+     * Applies frosting effect to the given bitmap passed, with the given radius, using the given backend.
+     *
+     * @param src     The bitmap on which frosting has to be applied.
+     * @param radius  The radius of the frosting effect. (Blur radius).
+     * @param backend The backend that performs the blur.
+     * @return The frosted bimap.
+     */
+    public Bitmap frost(Bitmap src, int radius, FrostBackend backend) {
+        return backend.frost(src, src, radius);
+    }
+
+    /**
+     * Applies frosting effect to the source bitmap and writes the result into the destination bitmap, leaving the
+     * source untouched.
+     *
+     * @param src     The bitmap on which frosting has to be applied.
+     * @param dst     The bitmap that receives the frosted result. It has to be of the same size as the source.
+     * @param radius  The radius of the frosting effect. (Blur radius).
+     * @param backend The backend that performs the blur.
+     * @return The destination bitmap.
+     */
+    public Bitmap frost(Bitmap src, Bitmap dst, int radius, FrostBackend backend) {
+        return backend.frost(src, dst, radius);
+    }
+
+    /**
+     * Same as {@link #frost(Bitmap, Bitmap, int, FrostBackend)}, but also tints the result with the given overlay
+     * color. The backend blends the color as it writes the blurred pixels, so a tinted frost costs no more than an
+     * untinted one.
+     *
+     * @param src          The bitmap on which frosting has to be applied.
+     * @param dst          The bitmap that receives the frosted result. It has to be of the same size as the source,
+     *                     and may be the source itself.
+     * @param radius       The radius of the frosting effect. (Blur radius).
+     * @param overlayColor The color drawn over the frosted result.
+     * @param backend      The backend that performs the blur.
+     * @return The destination bitmap.
+     */
+    public Bitmap frost(Bitmap src, Bitmap dst, int radius, @ColorInt int overlayColor, FrostBackend backend) {
+        return backend.frost(src, dst, radius, overlayColor);
+    }
+
+    /**
+     * Frosts every bitmap of the list in place, with the default backend. Much faster than frosting the bitmaps one by
+     * one: buffers are kept across bitmaps of the same size, and the work on successive bitmaps overlaps.
+     *
+     * @param bitmaps The bitmaps on which frosting has to be applied. They have to be mutable.
+     * @param radius  The radius of the frosting effect. (Blur radius).
+     * @return The given list, whose bitmaps are now frosted.
+     */
+    public List<Bitmap> frostAll(List<Bitmap> bitmaps, int radius) {
+        return frostAll(bitmaps, radius, getDefaultBackend());
+    }
+
+    /**
+     * Frosts every bitmap of the list in place, with the given backend. With the Java backend, the bitmaps are spread
+     * across the cores.
+     *
+     * @param bitmaps The bitmaps on which frosting has to be applied. They have to be mutable.
+     * @param radius  The radius of the frosting effect. (Blur radius).
+     * @param backend The backend that performs the blur.
+     * @return The given list, whose bitmaps are now frosted.
+     */
+    public List<Bitmap> frostAll(List<Bitmap> bitmaps, int radius, FrostBackend backend) {
+        frostBatch(bitmaps, radius, backend, new BatchFrostBackend.Listener() {
+            @Override
+            public boolean onFrosted(int index, Bitmap frosted) {
+                return true;
+            }
+        });
+        return bitmaps;
+    }
+
+    /**
+     * Same as {@link #frostAll(List, int, FrostBackend)}, but without blocking the calling thread. The bitmaps are
+     * frosted on a background thread, and handed to the callback on the main thread one by one as soon as they are
+     * frosted, so that a list can show them as they come.
+     * <p/>
+     * Cancelling the returned future stops the batch: the bitmaps that have not been started are left untouched, and
+     * the callback is no longer called.
+     *
+     * @param bitmaps  The bitmaps on which frosting has to be applied. They have to be mutable, and must not be
+     *                 modified until the batch is over.
+     * @param radius   The radius of the frosting effect. (Blur radius).
+     * @param backend  The backend that performs the blur.
+     * @param callback Called on the main thread with every frosted bitmap. May be null.
+     * @return The future of the frosted bitmaps, which is the given list.
+     */
+    public Future<List<Bitmap>> frostAll(List<Bitmap> bitmaps, int radius, FrostBackend backend,
+                                         FrostBatchCallback callback) {
+        final FrostBatchRequest request = new FrostBatchRequest(this, bitmaps, radius, getAsyncBackend(backend),
+                callback);
+        getAsyncExecutor().execute(request);
+        return request;
+    }
+
+    /**
+     * Frosts the bitmaps with the batch support of the backend, or one by one if it has none.
+     */
+    void frostBatch(List<Bitmap> bitmaps, int radius, FrostBackend backend, BatchFrostBackend.Listener listener) {
+        if (backend instanceof BatchFrostBackend) {
+            ((BatchFrostBackend) backend).frostAll(bitmaps, radius, listener);
+            return;
+        }
+
+        for (int i = 0; i < bitmaps.size(); i++) {
+            final Bitmap bitmap = bitmaps.get(i);
+            backend.frost(bitmap, bitmap, radius);
+
+            if (!listener.onFrosted(i, bitmap)) {
+                return;
+            }
+        }
     }
 
     /**
@@ -93,31 +460,429 @@ public class FrostEngine {
      * @return The frosted bimap.
      */
     public Bitmap fastFrost(View src, int radius, float downscaleFactor) {
-        Bitmap bitmap = getBitmapForView(src, downscaleFactor);
-        return frost(bitmap, radius);
+        return fastFrost(src, radius, downscaleFactor, getDefaultBackend());
+    }
+
+    /**
+     * Same as {@link #fastFrost(View, int, float)}, but blurs with the given backend. Radii larger than the backend
+     * supports are planned with {@link #planBlur(int, float, FrostBackend)}, so the returned bitmap may be smaller
+     * than the downscale factor alone would give.
+     *
+     * @param src             The source view to which frosting effect has to be applied.
+     * @param radius          The radius of the frosting effect. (Blur radius).
+     * @param downscaleFactor The factor with which thr bitmap must be downscaled before frosting.
+     * @param backend         The backend that performs the blur.
+     * @return The frosted bimap.
+     */
+    public Bitmap fastFrost(View src, int radius, float downscaleFactor, FrostBackend backend) {
+        return fastFrost(src, planBlur(radius, downscaleFactor, backend), backend);
+    }
+
+    /**
+     * Frosts the given view as described by a plan created with {@link #planBlur(int, float, FrostBackend)}.
+     *
+     * @param src     The source view to which frosting effect has to be applied.
+     * @param plan    The blur plan.
+     * @param backend The backend that performs the blur.
+     * @return The frosted bimap.
+     */
+    public Bitmap fastFrost(View src, BlurPlan plan, FrostBackend backend) {
+        Bitmap bitmap = getBitmapForView(src, plan.getDownsampleFactor());
+        return frost(bitmap, plan.getRadius(), backend);
+    }
+
+    /**
+     * Same as {@link #fastFrost(View, int, float)}, but captures and blurs the view one tile at a time, with the
+     * default backend and tile size. Meant for views so large that a full size capture, and the buffers of the blur
+     * on top of it, would take too much memory.
+     *
+     * @param src             The source view to which frosting effect has to be applied.
+     * @param radius          The radius of the frosting effect. (Blur radius).
+     * @param downscaleFactor The factor with which the bitmap must be downscaled before frosting.
+     * @return The frosted bitmap.
+     */
+    public Bitmap frostTiled(View src, int radius, float downscaleFactor) {
+        final FrostBackend backend = getDefaultBackend();
+        return frostTiled(src, planBlur(radius, downscaleFactor, backend), backend, DEFAULT_TILE_SIZE);
     }
 
     /**
-     * This method tries to extract a bitmap from the given view.
+     * Frosts the given view one tile at a time. Every tile is captured with a halo as wide as the blur, blurred, and
+     * stitched into the frosted bitmap, which looks the same as if the view had been frosted as a whole. Besides the
+     * frosted bitmap, the memory used is bounded by the tile size, with one tile buffer per tile thread at most.
+     * <p/>
+     * Tiles are captured and stitched on the calling thread, which has to be the main thread. With the Java and Kawase
+     * backends, the tiles are blurred in parallel on threads of their own, each with its own instance of the backend,
+     * while the next tiles are captured. Other backends blur the tiles one by one on the calling thread.
+     *
+     * @param src      The source view to which frosting effect has to be applied.
+     * @param plan     The blur plan.
+     * @param backend  The backend that performs the blur.
+     * @param tileSize The width and height of the tiles, in pixels of the downsampled capture.
+     * @return The frosted bitmap.
+     */
+    public Bitmap frostTiled(View src, BlurPlan plan, FrostBackend backend, int tileSize) {
+        final float downsampleFactor = plan.getDownsampleFactor();
+        final int radius = plan.getRadius();
+        final Bitmap frosted = mBitmapPool.acquire((int) (src.getWidth() / downsampleFactor),
+                (int) (src.getHeight() / downsampleFactor), Bitmap.Config.ARGB_8888);
+        frosted.eraseColor(Color.TRANSPARENT);
+
+        final FrostTiling tiling = new FrostTiling(frosted.getWidth(), frosted.getHeight(), tileSize, radius);
+        final Canvas canvas = new Canvas(frosted);
+        final FrostBackend[] tileBackends = getTileBackends(backend);
+
+        try {
+            if (tileBackends != null) {
+                frostTilesInParallel(src, downsampleFactor, radius, tiling, canvas, tileBackends);
+            } else {
+                frostTilesSerially(src, downsampleFactor, radius, tiling, canvas, backend);
+            }
+        } catch (RuntimeException e) {
+            mBitmapPool.release(frosted);
+            throw e;
+        }
+
+        return frosted;
+    }
+
+    /**
+     * Captures, blurs and stitches the tiles one by one on the calling thread, through a single tile buffer.
+     */
+    private void frostTilesSerially(View src, float downsampleFactor, int radius, FrostTiling tiling, Canvas canvas,
+                                    FrostBackend backend) {
+        final FrostTiling.Tile tile = new FrostTiling.Tile();
+        final Bitmap buffer = mBitmapPool.acquire(tiling.captureWidth, tiling.captureHeight, Bitmap.Config.ARGB_8888);
+        final Canvas tileCanvas = new Canvas(buffer);
+        final Matrix tileMatrix = new Matrix();
+
+        try {
+            for (int i = 0; i < tiling.getTileCount(); i++) {
+                tiling.getTile(i, tile);
+                captureTile(src, downsampleFactor, tile, buffer, tileCanvas, tileMatrix);
+                backend.frost(buffer, buffer, radius);
+                stitchTile(canvas, buffer, tile);
+            }
+        } finally {
+            mBitmapPool.release(buffer);
+        }
+    }
+
+    /**
+     * Captures the tiles on the calling thread, and blurs them on the tile threads. Every tile thread has a slot, with
+     * a tile buffer and a backend of its own, which is freed by stitching the tile it blurred before capturing the next
+     * tile into it.
+     */
+    private void frostTilesInParallel(View src, float downsampleFactor, final int radius, FrostTiling tiling,
+                                      Canvas canvas, FrostBackend[] backends) {
+        final int slots = backends.length;
+        final Bitmap[] buffers = new Bitmap[slots];
+        final Canvas[] tileCanvases = new Canvas[slots];
+        final FrostTiling.Tile[] tiles = new FrostTiling.Tile[slots];
+        final Matrix tileMatrix = new Matrix();
+        @SuppressWarnings("unchecked")
+        final Future<Bitmap>[] blurs = new Future[slots];
+
+        try {
+            for (int i = 0; i < tiling.getTileCount() + slots; i++) {
+                final int slot = i % slots;
+
+                if (blurs[slot] != null) {
+                    stitchTile(canvas, blurs[slot].get(), tiles[slot]);
+                    blurs[slot] = null;
+                }
+
+                if (i >= tiling.getTileCount()) {
+                    continue;
+                }
+
+                if (buffers[slot] == null) {
+                    buffers[slot] = mBitmapPool.acquire(tiling.captureWidth, tiling.captureHeight,
+                            Bitmap.Config.ARGB_8888);
+                    tileCanvases[slot] = new Canvas(buffers[slot]);
+                    tiles[slot] = new FrostTiling.Tile();
+                }
+
+                tiling.getTile(i, tiles[slot]);
+                captureTile(src, downsampleFactor, tiles[slot], buffers[slot], tileCanvases[slot], tileMatrix);
+
+                final Bitmap buffer = buffers[slot];
+                final FrostBackend backend = backends[slot];
+                blurs[slot] = getTileExecutor().submit(new Callable<Bitmap>() {
+                    @Override
+                    public Bitmap call() throws Exception {
+                        return backend.frost(buffer, buffer, radius);
+                    }
+                });
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new FGException("Tiled frost failed: " + e);
+        } finally {
+            for (int slot = 0; slot < slots; slot++) {
+                // A blur still running after a failure keeps writing to its buffer, which is left to the collector.
+                if (blurs[slot] == null && buffers[slot] != null) {
+                    mBitmapPool.release(buffers[slot]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the part of the view captured for the given tile into the buffer, through a canvas drawing into it.
+     */
+    private void captureTile(View src, float downscaleFactor, FrostTiling.Tile tile, Bitmap buffer, Canvas canvas,
+                             Matrix matrix) {
+        final long start = System.nanoTime();
+
+        matrix.reset();
+        matrix.preScale(1f / downscaleFactor, 1f / downscaleFactor);
+        matrix.preTranslate(-tile.captureLeft * downscaleFactor, -tile.captureTop * downscaleFactor);
+        canvas.setMatrix(matrix);
+        FrostRenderer.capture(src, buffer, canvas);
+
+        mMetrics.record(FrostMetrics.Stage.CAPTURE, System.nanoTime() - start);
+    }
+
+    /**
+     * Returns one instance of the given backend per tile thread, or null if the tiles have to be blurred one by one.
+     * Only the CPU backends of the engine can blur on several threads at once, with an instance each: Renderscript
+     * runs its launches one after the other, and other backends are not known to be safe to run in parallel.
+     */
+    private synchronized FrostBackend[] getTileBackends(FrostBackend backend) {
+        if (backend == null || TILE_THREADS < 2) {
+            return null;
+        }
+
+        if (backend == mJavaBackend || backend == mAsyncJavaBackend) {
+            if (mJavaTileBackends == null) {
+                mJavaTileBackends = new FrostBackend[TILE_THREADS];
+                for (int i = 0; i < TILE_THREADS; i++) {
+                    // Every tile thread blurs its own tile, so the kernels do not split the tiles any further.
+                    mJavaTileBackends[i] = new JavaFrostBackend(mMetrics, 1);
+                }
+            }
+            return mJavaTileBackends;
+        }
+
+        if (backend == mKawaseBackend || backend == mAsyncKawaseBackend) {
+            if (mKawaseTileBackends == null) {
+                mKawaseTileBackends = new FrostBackend[TILE_THREADS];
+                for (int i = 0; i < TILE_THREADS; i++) {
+                    mKawaseTileBackends[i] = new KawaseFrostBackend(mMetrics);
+                }
+            }
+            return mKawaseTileBackends;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The executor the tiles of tiled frosts are blurred on, apart from the asynchronous frosts.
+     */
+    private synchronized ExecutorService getTileExecutor() {
+        if (mTileExecutor == null) {
+            mTileExecutor = new ThreadPoolExecutor(TILE_THREADS, TILE_THREADS, 1, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    return new Thread(runnable, "FrostEngine-tile");
+                }
+            });
+
+            // The threads go away when no tiled frost has been requested for a while.
+            mTileExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        return mTileExecutor;
+    }
+
+    /**
+     * Draws the blurred tile, without its halo, into the frosted bitmap.
+     */
+    private static void stitchTile(Canvas canvas, Bitmap blurred, FrostTiling.Tile tile) {
+        canvas.save();
+        canvas.clipRect(tile.left, tile.top, tile.left + tile.width, tile.top + tile.height);
+        canvas.drawBitmap(blurred, tile.captureLeft, tile.captureTop, null);
+        canvas.restore();
+    }
+
+    /**
+     * Same as {@link #fastFrost(View, int, float)}, but without blocking the calling thread for the blur. The view is
+     * captured right away, on the calling thread, and blurred on a background thread.
+     *
+     * @param src             The source view to which frosting effect has to be applied.
+     * @param radius          The radius of the frosting effect. (Blur radius).
+     * @param downscaleFactor The factor with which the bitmap must be downscaled before frosting.
+     * @param callback        Called on the main thread with the frosted bitmap. May be null.
+     * @return The future of the frosted bitmap.
+     */
+    public Future<Bitmap> frostAsync(View src, int radius, float downscaleFactor, FrostCallback callback) {
+        final FrostBackend backend = getDefaultBackend();
+        return frostAsync(src, planBlur(radius, downscaleFactor, backend), backend, callback);
+    }
+
+    /**
+     * Frosts the given view as described by a plan created with {@link #planBlur(int, float, FrostBackend)}, without
+     * blocking the calling thread for the blur. The view is captured right away, on the calling thread, which has to be
+     * the main thread, and blurred on a small pool of background threads.
+     * <p/>
+     * A newer frost of the same view supersedes this one: it is cancelled if it has not run yet, its callback is not
+     * called, and its bitmap goes back to the pool. Cancelling the returned future has the same effect.
+     *
+     * @param src      The source view to which frosting effect has to be applied.
+     * @param plan     The blur plan.
+     * @param backend  The backend that performs the blur.
+     * @param callback Called on the main thread with the frosted bitmap, see {@link FrostCallback}. May be null.
+     * @return The future of the frosted bitmap.
+     */
+    public Future<Bitmap> frostAsync(View src, BlurPlan plan, FrostBackend backend, FrostCallback callback) {
+        final Bitmap bitmap = getBitmapForView(src, plan.getDownsampleFactor());
+        final FrostRequest request = new FrostRequest(this, bitmap, plan.getRadius(), getAsyncBackend(backend),
+                callback);
+
+        final FrostRequest previous = mAsyncRequests.put(src, request);
+        if (previous != null) {
+            previous.supersede();
+        }
+
+        getAsyncExecutor().execute(request);
+        return request;
+    }
+
+    /**
+     * @return The executor asynchronous frosts run on.
+     */
+    synchronized ExecutorService getAsyncExecutor() {
+        if (mAsyncExecutor == null) {
+            mAsyncExecutor = new ThreadPoolExecutor(ASYNC_THREADS, ASYNC_THREADS, 1, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    return new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            runnable.run();
+                        }
+                    }, "FrostEngine-async");
+                }
+            });
+
+            // The threads go away when no frost has been requested for a while.
+            mAsyncExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        return mAsyncExecutor;
+    }
+
+    /**
+     * Plans a blur of the given radius for the given backend. Radii beyond what the backend supports are turned into
+     * an extra downsample step and a smaller kernel radius, which keeps both the look and the cost of large radii
+     * close to those of small ones.
+     *
+     * @param radius           The requested radius, in pixels of the bitmap downsampled by {@code downsampleFactor}.
+     * @param downsampleFactor The downsample factor the caller would capture with.
+     * @param backend          The backend that is going to perform the blur.
+     * @return The blur plan.
+     */
+    public static BlurPlan planBlur(int radius, float downsampleFactor, FrostBackend backend) {
+        return BlurPlan.plan(radius, downsampleFactor, backend.getMaxRadius());
+    }
+
+    /**
+     * This method tries to extract a bitmap from the given view. The bitmap is taken from the {@link FrostBitmapPool}
+     * of the engine, and can be handed back to it with {@link #releaseBitmap(Bitmap)} once it is no longer displayed.
      *
      * @param src             The view from which a bitmap has to be created.
      * @param downscaleFactor The factor with which the bitmap has to be down scaled.
      * @return The bitmap created from the view.
      */
     public Bitmap getBitmapForView(View src, float downscaleFactor) {
-        Bitmap bitmap = Bitmap.createBitmap(
+        return getBitmapForView(src, downscaleFactor, Bitmap.Config.ARGB_8888);
+    }
+
+    /**
+     * Same as {@link #getBitmapForView(View, float)}, but captures into a bitmap of the given config. Opaque views
+     * can be captured in {@link Bitmap.Config#RGB_565}, which halves the memory and the copy traffic of the blur.
+     *
+     * @param src             The view from which a bitmap has to be created.
+     * @param downscaleFactor The factor with which the bitmap has to be down scaled.
+     * @param config          The config of the bitmap.
+     * @return The bitmap created from the view.
+     */
+    public Bitmap getBitmapForView(View src, float downscaleFactor, Bitmap.Config config) {
+        Bitmap bitmap = mBitmapPool.acquire(
                 (int) (src.getWidth() / downscaleFactor),
                 (int) (src.getHeight() / downscaleFactor),
-                Bitmap.Config.ARGB_8888
+                config
         );
 
-        Canvas canvas = new Canvas(bitmap);
-        Matrix matrix = new Matrix();
-        matrix.preScale(1f / downscaleFactor, 1f / downscaleFactor);
-        canvas.setMatrix(matrix);
-        src.draw(canvas);
+        return captureView(src, downscaleFactor, bitmap);
+    }
+
+    /**
+     * Draws the given view into an existing bitmap, downscaled by the given factor. The bitmap is cleared to the
+     * background color of the view first, see {@link FrostRenderer#capture(View, Bitmap, Canvas)}.
+     *
+     * @param src             The view to be captured.
+     * @param downscaleFactor The factor with which the view has to be down scaled.
+     * @param dst             The bitmap to draw into. It should be the size of the view divided by the factor.
+     * @return The destination bitmap.
+     */
+    public Bitmap captureView(View src, float downscaleFactor, Bitmap dst) {
+        final long start = System.nanoTime();
 
-        return bitmap;
+        // Live frosting captures every frame, so the canvas and the matrix are reused instead of allocated.
+        synchronized (mCaptureCanvas) {
+            mCaptureCanvas.setBitmap(dst);
+            mCaptureMatrix.setScale(1f / downscaleFactor, 1f / downscaleFactor);
+            mCaptureCanvas.setMatrix(mCaptureMatrix);
+            FrostRenderer.capture(src, dst, mCaptureCanvas);
+
+            // Detached, so that the canvas does not hold on to a bitmap that goes back to the pool.
+            mCaptureCanvas.setBitmap(null);
+        }
+
+        mMetrics.record(FrostMetrics.Stage.CAPTURE, System.nanoTime() - start);
+        return dst;
+    }
+
+    /**
+     * Creates a copy of the given bitmap, using a bitmap from the {@link FrostBitmapPool} of the engine.
+     *
+     * @param src The bitmap to be copied.
+     * @return A pooled bitmap with the same size, config and contents as the source.
+     */
+    public Bitmap copyBitmap(Bitmap src) {
+        Bitmap copy = mBitmapPool.acquire(src.getWidth(), src.getHeight(), src.getConfig());
+        copy.eraseColor(Color.TRANSPARENT);
+        new Canvas(copy).drawBitmap(src, 0, 0, null);
+        return copy;
+    }
+
+    /**
+     * Hands a bitmap created by this engine back to its {@link FrostBitmapPool}. The bitmap must no longer be used
+     * or displayed by the caller.
+     *
+     * @param bitmap The bitmap to be released.
+     */
+    public void releaseBitmap(Bitmap bitmap) {
+        mBitmapPool.release(bitmap);
+    }
+
+    /**
+     * @return The timings of the frames frosted by every glass using this engine.
+     */
+    public FrostMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * @return The pool from which the engine draws its capture and blur buffers.
+     */
+    public FrostBitmapPool getBitmapPool() {
+        return mBitmapPool;
     }
 
     /**
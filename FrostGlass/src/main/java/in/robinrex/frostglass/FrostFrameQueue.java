@@ -0,0 +1,214 @@
+package in.robinrex.frostglass;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * Orders the frame callbacks posted to the {@link FrostScheduler} and runs them within a time budget per frame.
+ * <p/>
+ * Callbacks run once per post, from the highest priority to the lowest. Within a priority, callbacks that were deferred
+ * run first, then the others in the order they were posted. Once the budget of a frame is spent, the remaining
+ * callbacks are deferred to the next frame. At least one callback runs every frame, and none is deferred more than
+ * {@link #MAX_DEFERRED_FRAMES} frames in a row, so that low priority callbacks cannot starve.
+ *
+ * @param <T> The type of the callbacks.
+ * @author Robin Rex G.
+ */
+abstract class FrostFrameQueue<T> {
+
+    /**
+     * The number of frames in a row a callback can be deferred, after which it runs regardless of the budget.
+     */
+    static final int MAX_DEFERRED_FRAMES = 3;
+
+    private static class Entry<T> {
+        T callback;
+        int priority;
+        long sequence;
+        int deferredFrames;
+        boolean removed;
+    }
+
+    private static final Comparator<Entry<?>> ORDER = new Comparator<Entry<?>>() {
+        @Override
+        public int compare(Entry<?> a, Entry<?> b) {
+            if (a.priority != b.priority) {
+                return a.priority > b.priority ? -1 : 1;
+            }
+
+            if (a.deferredFrames != b.deferredFrames) {
+                return a.deferredFrames > b.deferredFrames ? -1 : 1;
+            }
+
+            return a.sequence < b.sequence ? -1 : (a.sequence == b.sequence ? 0 : 1);
+        }
+    };
+
+    private ArrayList<Entry<T>> mPending = new ArrayList<>();
+
+    private ArrayList<Entry<T>> mRunning = new ArrayList<>();
+
+    /**
+     * Entries are recycled, so that posting a callback on every frame does not allocate.
+     */
+    private final ArrayList<Entry<T>> mRecycled = new ArrayList<>();
+
+    private long mSequence;
+
+    private long mBudgetNanos;
+
+    /**
+     * @param budgetNanos The time the callbacks of a frame may take together, in nanoseconds.
+     */
+    FrostFrameQueue(long budgetNanos) {
+        setBudgetNanos(budgetNanos);
+    }
+
+    void setBudgetNanos(long budgetNanos) {
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("Frame budget must be positive." + budgetNanos);
+        }
+
+        mBudgetNanos = budgetNanos;
+    }
+
+    long getBudgetNanos() {
+        return mBudgetNanos;
+    }
+
+    /**
+     * Runs a callback.
+     *
+     * @param callback       The callback.
+     * @param frameTimeNanos The vsync time of the frame.
+     */
+    abstract void dispatch(T callback, long frameTimeNanos);
+
+    /**
+     * @return The current time, in nanoseconds.
+     */
+    long now() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Posts a callback to run on the next frame. Posting a callback that is already pending only updates its priority.
+     *
+     * @param callback The callback.
+     * @param priority The priority of the callback. Higher priorities run first.
+     */
+    void post(T callback, int priority) {
+        for (int i = 0; i < mPending.size(); i++) {
+            final Entry<T> entry = mPending.get(i);
+            if (entry.callback == callback) {
+                entry.priority = priority;
+                return;
+            }
+        }
+
+        final Entry<T> entry = mRecycled.isEmpty() ? new Entry<T>() : mRecycled.remove(mRecycled.size() - 1);
+        entry.callback = callback;
+        entry.priority = priority;
+        entry.sequence = mSequence++;
+        entry.deferredFrames = 0;
+        entry.removed = false;
+        mPending.add(entry);
+    }
+
+    /**
+     * Removes a pending callback. If the callback was going to run later in the current frame, it does not run.
+     *
+     * @param callback The callback.
+     */
+    void remove(T callback) {
+        for (int i = 0; i < mRunning.size(); i++) {
+            if (mRunning.get(i).callback == callback) {
+                mRunning.get(i).removed = true;
+            }
+        }
+
+        for (int i = 0; i < mPending.size(); i++) {
+            final Entry<T> entry = mPending.get(i);
+            if (entry.callback == callback) {
+                mPending.remove(i);
+
+                // An entry deferred during the current frame is still in the running list, which recycles it.
+                if (!entry.removed) {
+                    recycle(entry);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return True if no callback is pending.
+     */
+    boolean isEmpty() {
+        return mPending.isEmpty();
+    }
+
+    /**
+     * Runs the callbacks posted for this frame, in order, until the budget is spent. Callbacks posted while running
+     * are kept for the next frame.
+     *
+     * @param frameTimeNanos The vsync time of the frame.
+     * @return The number of callbacks that ran.
+     */
+    int run(long frameTimeNanos) {
+        final ArrayList<Entry<T>> running = mPending;
+        mPending = mRunning;
+        mRunning = running;
+
+        Collections.sort(running, ORDER);
+
+        final long start = now();
+        int ran = 0;
+
+        for (int i = 0; i < running.size(); i++) {
+            final Entry<T> entry = running.get(i);
+            if (entry.removed) {
+                continue;
+            }
+
+            final boolean overBudget = ran > 0 && now() - start >= mBudgetNanos;
+            if (overBudget && entry.deferredFrames < MAX_DEFERRED_FRAMES) {
+                deferToNextFrame(entry);
+                continue;
+            }
+
+            // Marked before running, so that the callback can post itself again for the next frame.
+            entry.removed = true;
+            dispatch(entry.callback, frameTimeNanos);
+            ran++;
+        }
+
+        for (int i = 0; i < running.size(); i++) {
+            if (running.get(i).removed) {
+                recycle(running.get(i));
+            }
+        }
+        running.clear();
+
+        return ran;
+    }
+
+    private void deferToNextFrame(Entry<T> entry) {
+        // A callback may already have posted itself again while the others ran.
+        for (int i = 0; i < mPending.size(); i++) {
+            if (mPending.get(i).callback == entry.callback) {
+                entry.removed = true;
+                return;
+            }
+        }
+
+        entry.deferredFrames++;
+        mPending.add(entry);
+    }
+
+    private void recycle(Entry<T> entry) {
+        entry.callback = null;
+        mRecycled.add(entry);
+    }
+}
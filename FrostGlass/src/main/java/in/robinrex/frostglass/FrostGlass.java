@@ -4,11 +4,9 @@ import android.animation.Animator;
 import android.animation.ValueAnimator;
 import android.app.Activity;
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Paint;
-import android.graphics.drawable.BitmapDrawable;
-import android.graphics.drawable.ColorDrawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.ColorInt;
 import android.support.annotation.IntRange;
 import android.view.Choreographer;
@@ -31,52 +29,214 @@ public class FrostGlass implements Choreographer.FrameCallback {
 
     private static final int DEFAULT_OVERLAY_COLOR = Color.TRANSPARENT;
 
+    /**
+     * The number of blur levels the frost animation cross-fades between.
+     */
+    private static final int PYRAMID_LEVELS = 3;
+
     private final Activity mContext;
 
     FrostEngine mFrostEngine;
 
+    private FrostBackend mFrostBackend;
+
     private boolean mIsLiveFrostEnabled = false;
 
     private View mFrostView = null;
 
     private FrameLayout mActivityView;
 
-    private Bitmap mFrostedBitmap;
+    /**
+     * The background of the frost view, which the frosted frames are swapped into. It owns the frosted bitmaps.
+     */
+    private FrostDrawable mFrostDrawable;
 
     private int mDownsampleFactor = DEFAULT_DOWNSAMPLE_FACTOR;
 
     private int mBlurRadius = DEFAULT_BLUR_RADIUS;
 
-    private int mFrostingDuration = DEFAULT_FROSTING_DURATION;
+    private BlurPlan mBlurPlan;
+
+    private FrostPipeline mPipeline;
+
+    private final FrostChangeDetector mChangeDetector = new FrostChangeDetector();
+
+    private FrostQualityController mQualityController;
 
-    private Paint mOverlayPaint = new Paint();
+    private int mFrostPriority = FrostScheduler.PRIORITY_DEFAULT;
+
+    private final FramePacer mFramePacer = new FramePacer();
+
+    private boolean mDestroyed;
+
+    private Bitmap.Config mBitmapConfig = Bitmap.Config.ARGB_8888;
+
+    /**
+     * The time the UI thread spent capturing the frame in flight in the pipeline.
+     */
+    private long mCaptureNanos;
+
+    private int mFrostingDuration = DEFAULT_FROSTING_DURATION;
 
     @ColorInt
     private int mFrostOverlay = DEFAULT_OVERLAY_COLOR;
 
-    private Canvas mFrostedBitmapCanvas;
+    private FrostSnapshotCache mSnapshotCache;
+
+    /**
+     * Incremented whenever the screen is frosted or defrosted, so that a frost computed in the background can tell
+     * whether it is still wanted.
+     */
+    private volatile int mFrostGeneration;
 
-    private FrostEngine.FrostMode mFrostMode = FrostEngine.FrostMode.ORIGINAL;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
 
     public FrostGlass(Activity context) {
 
-        FrostEngine.init(context);
         mContext = context;
-        mFrostEngine = FrostEngine.getInstance();
-
-        mOverlayPaint.setColor(Color.TRANSPARENT);
+        mFrostEngine = FrostEngine.acquire(context);
+        mFrostBackend = mFrostEngine.getDefaultBackend();
+        mFrostDrawable = new FrostDrawable(mFrostEngine.getBitmapPool(), mFrostEngine.getMetrics());
 
-        Choreographer.getInstance().postFrameCallback(this);
+        FrostScheduler.getInstance().postFrameCallback(this, mFrostPriority);
 
     }
 
     public void setOverlayColor(@ColorInt int color) {
         mFrostOverlay = color;
-        mOverlayPaint.setColor(mFrostOverlay);
+        mChangeDetector.reset();
     }
 
     public void setFrostQuality(@IntRange(from = 1, to = 100) int downsampleFactor) {
         this.mDownsampleFactor = downsampleFactor;
+        mBlurPlan = null;
+        mChangeDetector.reset();
+
+        if (mQualityController != null) {
+            mQualityController = new FrostQualityController(mQualityController.getBudgetNanos(), downsampleFactor);
+        }
+    }
+
+    /**
+     * Lets the downsample factor of live frosting adapt to the device and to the screen content, so that capturing and
+     * blurring a frame stays within the given budget. The factor set by {@link #setFrostQuality(int)} is used as the
+     * starting point, and the blur radius is scaled along so that the blur keeps its size on screen.
+     *
+     * @param frameBudgetMillis The time frosting a frame should take, in milliseconds. For example 4.
+     */
+    public void enableAdaptiveQuality(float frameBudgetMillis) {
+        mQualityController = new FrostQualityController((long) (frameBudgetMillis * 1000000), mDownsampleFactor);
+        mBlurPlan = null;
+        mChangeDetector.reset();
+    }
+
+    /**
+     * Goes back to the downsample factor and radius set by hand.
+     */
+    public void disableAdaptiveQuality() {
+        if (mQualityController != null) {
+            mQualityController = null;
+            mBlurPlan = null;
+            mChangeDetector.reset();
+        }
+    }
+
+    /**
+     * Sets the backend used to blur the screen. Defaults to {@link FrostEngine#getDefaultBackend()}.
+     *
+     * @param backend The backend, usually obtained from {@link FrostEngine#getBackend(FrostEngine.Backend)}.
+     */
+    public void setFrostBackend(FrostBackend backend) {
+        mFrostBackend = backend;
+        mBlurPlan = null;
+        mChangeDetector.reset();
+    }
+
+    /**
+     * Enables or disables blurring live frames on a worker thread. When enabled, the screen is still captured on the
+     * UI thread, but the blur runs on a dedicated thread and its result is displayed on a later frame. While a frame is
+     * being blurred, no new frame is captured.
+     *
+     * @param enabled True to blur live frames off the UI thread.
+     */
+    public void setAsyncLiveFrost(boolean enabled) {
+        if (enabled && mPipeline == null) {
+            mPipeline = new FrostPipeline(mFrostEngine.getBitmapPool());
+        } else if (!enabled && mPipeline != null) {
+            reclaimPipelineFront();
+            mPipeline.quit();
+            mPipeline = null;
+        }
+    }
+
+    public boolean isAsyncLiveFrost() {
+        return mPipeline != null;
+    }
+
+    /**
+     * Enables or disables the opaque mode, in which the screen is captured and blurred in
+     * {@link Bitmap.Config#RGB_565}. This halves the memory and the copy traffic of every frosted frame, but drops the
+     * alpha channel, so it is meant for activities with an opaque background. RGB_565 is blurred by the Java kernel,
+     * since the Renderscript intrinsic only supports 8 bit channels.
+     *
+     * @param opaque True to capture in RGB_565.
+     */
+    public void setOpaqueFrost(boolean opaque) {
+        mBitmapConfig = opaque ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        mChangeDetector.reset();
+    }
+
+    /**
+     * Caps the rate at which live frost blurs the screen again. The previous result stays on screen on the frames in
+     * between, which are skipped at even intervals of the display refresh.
+     *
+     * @param fps The highest number of frames frosted per second, for example 30, or 0 to frost every frame.
+     */
+    public void setLiveFrameRate(@IntRange(from = 0) int fps) {
+        mFramePacer.setFrameRate(fps);
+    }
+
+    /**
+     * Sets the priority of the live frost in the {@link FrostScheduler}. When the frost work of a frame goes over the
+     * budget, lower priorities are the first to be updated a frame later.
+     *
+     * @param priority The priority. Higher priorities are rendered first. Defaults to
+     *                 {@link FrostScheduler#PRIORITY_DEFAULT}.
+     */
+    public void setFrostPriority(int priority) {
+        mFrostPriority = priority;
+    }
+
+    /**
+     * Enables or disables the snapshot cache. When enabled, the last frosted frame of the activity is kept in a small
+     * file of the cache directory. When the activity frosts again at the same size, after a configuration change or a
+     * process restore, the snapshot is displayed on the first frame, and the fresh frost replaces it once it has been
+     * computed in the background.
+     *
+     * @param enabled True to enable the snapshot cache.
+     */
+    public void setSnapshotCacheEnabled(boolean enabled) {
+        mSnapshotCache = enabled ? new FrostSnapshotCache(mContext.getCacheDir()) : null;
+    }
+
+    /**
+     * Stores the frosted frame currently displayed in the snapshot cache, if it is enabled. Called when the screen has
+     * been frosted, and by {@link FrostableActivity} when it is paused, so that the latest live frame is kept.
+     */
+    public void saveSnapshot() {
+        final FrameLayout view = getContentView();
+        if (mSnapshotCache == null || mFrostView == null || view == null) {
+            return;
+        }
+
+        if (mPipeline != null) {
+            reclaimPipelineFront();
+        }
+
+        if (mFrostDrawable.getBitmap() != null) {
+            mSnapshotCache.save(FrostSnapshotCache.keyFor(mContext, view.getWidth(), view.getHeight()),
+                    mFrostDrawable.getBitmap());
+        }
     }
 
     public void setFrostingDuration(int duration) {
@@ -87,13 +247,31 @@ public class FrostGlass implements Choreographer.FrameCallback {
         frostScreen(blurRadius, false);
     }
 
+    /**
+     * Same as {@link #staticFrost(int)}, but the screen is blurred on a background thread instead of the UI thread.
+     * Only the capture of the screen happens on the UI thread, and the frost fades in once the blur is done. Frosting
+     * or defrosting again before then discards the pending blur.
+     *
+     * @param blurRadius The radius of the frosting effect.
+     */
+    public void staticFrostAsync(int blurRadius) {
+        frostScreen(blurRadius, false, true);
+    }
+
     public void liveFrost(int blurRadius) {
         frostScreen(blurRadius, true);
     }
 
-    private void frostScreen(final int blurRadius, boolean isLive) {
+    private void frostScreen(int blurRadius, boolean isLive) {
+        frostScreen(blurRadius, isLive, false);
+    }
+
+    private void frostScreen(final int blurRadius, boolean isLive, final boolean async) {
 
         mBlurRadius = blurRadius;
+        mBlurPlan = null;
+        mChangeDetector.reset();
+        final int generation = ++mFrostGeneration;
 
         mIsLiveFrostEnabled = isLive;
 
@@ -138,102 +316,96 @@ public class FrostGlass implements Choreographer.FrameCallback {
                         blurView.setAlpha(0);
                     }
 
-                    final Bitmap[] blurredContent = new Bitmap[1];
-                    final Bitmap sourceBitmap = mFrostEngine.getBitmapForView(view, mDownsampleFactor);
-                    ValueAnimator animator = ValueAnimator.ofInt(1, blurRadius);
-                    animator.setDuration(mFrostingDuration);
-                    final int[] averageFrameTime = new int[1];
-                    final int[] framesRendered = new int[1];
-
+                    final BlurPlan plan = getBlurPlan();
+                    final Bitmap sourceBitmap = mFrostEngine.getBitmapForView(view, plan.getDownsampleFactor(),
+                            mBitmapConfig);
+
+                    if (showSnapshot(view, blurView, v == null, sourceBitmap)) {
+                        if (mIsLiveFrostEnabled) {
+                            mFrostEngine.releaseBitmap(sourceBitmap);
+                            FrostScheduler.getInstance().postFrameCallback(FrostGlass.this, mFrostPriority);
+                        } else {
+                            frostInBackground(view, blurView, false, sourceBitmap, blurRadius, plan, generation,
+                                    true);
+                        }
+                        return;
+                    }
 
-                    // If the background of the blurred view is a color drawable, we use it to clear
-                    // the blurring canvas, which ensures that edges of the child views are blurred
-                    // as well; otherwise we clear the blurring canvas with a transparent color.
-                    if (view.getBackground() != null && view.getBackground() instanceof ColorDrawable) {
-                        sourceBitmap.eraseColor(((ColorDrawable) view.getBackground()).getColor());
-                    } else {
-                        sourceBitmap.eraseColor(Color.TRANSPARENT);
+                    if (async) {
+                        frostInBackground(view, blurView, v == null, sourceBitmap, blurRadius, plan, generation,
+                                false);
+                        return;
                     }
 
-                    animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                        @Override
-                        public void onAnimationUpdate(ValueAnimator animation) {
-
-                            long startTime = System.currentTimeMillis();
-                            Bitmap bitmapToBlur;
-                            if (!mIsLiveFrostEnabled) {
-                                if(mFrostMode == FrostEngine.FrostMode.REFROST) {
-                                    bitmapToBlur = Bitmap.createBitmap(sourceBitmap, 0, 0, sourceBitmap.getWidth(), sourceBitmap
-                                            .getHeight());
-                                } else {
-                                    blurView.setAlpha(0);
-                                    bitmapToBlur = mFrostEngine.getBitmapForView(view, mDownsampleFactor);
-                                    blurView.setAlpha(1);
-                                }
-
-                            } else {
-                                blurView.setAlpha(0);
-                                bitmapToBlur = mFrostEngine.getBitmapForView(view, mDownsampleFactor);
-                                blurView.setAlpha(1);
-                            }
-
-                            blurredContent[0] = mFrostEngine.frost(bitmapToBlur, (int) animation.getAnimatedValue());
-
-//                            mFrostedBitmapCanvas = new Canvas(blurredContent[0]);
-//                            mFrostedBitmapCanvas.drawPaint(mOverlayPaint);
-
-                            blurView.setBackground(new BitmapDrawable(mContext.getResources(), blurredContent[0]));
-                            long frameTime = System.currentTimeMillis() - startTime;
-                            Logger.debug("Frame drawn in : " + (frameTime) + " millis");
-                            framesRendered[0]++;
-                            averageFrameTime[0] = (int) (averageFrameTime[0] + frameTime);
+                    // The screen is captured once, and blurred at a few radii up front. The animation then only
+                    // cross-fades between these levels, instead of capturing and blurring on every frame.
+                    final FrostPyramidDrawable pyramid = buildPyramid(sourceBitmap, blurRadius,
+                            mFrostingDuration > 0 ? PYRAMID_LEVELS : 1, plan, mFrostBackend);
+                    mFrostEngine.releaseBitmap(sourceBitmap);
 
-                        }
-                    });
+                    showFrost(view, blurView, v == null, pyramid);
+                }
+            }
+        });
 
-                    animator.addListener(new Animator.AnimatorListener() {
-                        @Override
-                        public void onAnimationStart(Animator animation) {
-                            //Do nothing.
-                        }
 
-                        @Override
-                        public void onAnimationEnd(Animator animation) {
-                            averageFrameTime[0] /= framesRendered[0];
-                            Logger.info("======================================");
-                            Logger.info("| Average Frame draw time : " + averageFrameTime[0]);
-                            Logger.info("======================================");
+    }
 
-                            if (mIsLiveFrostEnabled) {
-                                Choreographer.getInstance().postFrameCallback(FrostGlass.this);
-                            }
+    /**
+     * Displays the frost levels on the frost view, and fades from the lightest to the strongest blur.
+     */
+    private void showFrost(FrameLayout view, final View blurView, boolean isNewView,
+                           final FrostPyramidDrawable pyramid) {
+        blurView.setBackground(pyramid);
+        blurView.setAlpha(1);
 
-                            mFrostView = blurView;
-                        }
+        ValueAnimator animator = ValueAnimator.ofFloat(0, 1);
+        animator.setDuration(mFrostingDuration);
 
-                        @Override
-                        public void onAnimationCancel(Animator animation) {
-                            //Do nothing
-                        }
+        animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                pyramid.setProgress(animation.getAnimatedFraction());
+            }
+        });
 
-                        @Override
-                        public void onAnimationRepeat(Animator animation) {
-                            //Do nothing
-                        }
-                    });
+        animator.addListener(new Animator.AnimatorListener() {
+            @Override
+            public void onAnimationStart(Animator animation) {
+                //Do nothing.
+            }
 
-                    if (v == null)
-                        view.addView(blurView);
-                    else
-                        view.setAlpha(1);
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                pyramid.releaseIntermediateLevels(mFrostEngine.getBitmapPool());
+                setFrostedBitmap(blurView, pyramid.getLastLevel());
 
-                    Logger.debug("Animator started");
-                    animator.start();
+                if (mIsLiveFrostEnabled) {
+                    FrostScheduler.getInstance().postFrameCallback(FrostGlass.this, mFrostPriority);
                 }
+
+                mFrostView = blurView;
+                saveSnapshot();
+            }
+
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                //Do nothing
+            }
+
+            @Override
+            public void onAnimationRepeat(Animator animation) {
+                //Do nothing
             }
         });
 
+        if (isNewView)
+            view.addView(blurView);
+        else
+            view.setAlpha(1);
 
+        Logger.debug("Animator started");
+        animator.start();
     }
 
     private FrameLayout getContentView() {
@@ -241,47 +413,131 @@ public class FrostGlass implements Choreographer.FrameCallback {
         return (FrameLayout) mContext.getWindow().findViewById(android.R.id.content);
     }
 
+    /**
+     * Blurs the given capture at the given number of evenly spaced radii up to the given radius. May be called from a
+     * background thread.
+     */
+    private FrostPyramidDrawable buildPyramid(Bitmap source, int blurRadius, int levelCount, BlurPlan plan,
+                                              FrostBackend backend) {
+        final Bitmap[] levels = new Bitmap[levelCount];
+
+        for (int i = 0; i < levelCount; i++) {
+            final int radius = plan.scaleRadius(blurRadius * (i + 1) / levelCount);
+            levels[i] = mFrostEngine.getBitmapPool().acquire(source.getWidth(), source.getHeight(),
+                    source.getConfig());
+            mFrostEngine.frost(source, levels[i], radius, backend);
+        }
+
+        return new FrostPyramidDrawable(levels);
+    }
+
+    /**
+     * Displays the cached snapshot of the activity on the frost view, if the snapshot cache has one matching the
+     * capture.
+     *
+     * @return True if a snapshot is displayed.
+     */
+    private boolean showSnapshot(FrameLayout view, View blurView, boolean isNewView, Bitmap capture) {
+        if (mSnapshotCache == null) {
+            return false;
+        }
+
+        final Bitmap snapshot = mSnapshotCache.load(FrostSnapshotCache.keyFor(mContext, view.getWidth(),
+                view.getHeight()), capture.getWidth(), capture.getHeight(), capture.getConfig(),
+                mFrostEngine.getBitmapPool());
+        if (snapshot == null) {
+            return false;
+        }
+
+        setFrostedBitmap(blurView, snapshot);
+        blurView.setAlpha(1);
+
+        if (isNewView) {
+            view.addView(blurView);
+        }
+
+        mFrostView = blurView;
+        return true;
+    }
+
+    /**
+     * Frosts the capture on the executor of the frost engine, unless the screen has been frosted or defrosted again in
+     * the meantime, and displays the result on the main thread.
+     *
+     * @param replaceSnapshot True if the frost view shows a snapshot, which the result simply replaces. Otherwise the
+     *                        frost is faded in as with a frost on the UI thread.
+     */
+    private void frostInBackground(final FrameLayout view, final View blurView, final boolean isNewView,
+                                   final Bitmap capture, final int blurRadius, final BlurPlan plan,
+                                   final int generation, final boolean replaceSnapshot) {
+        final FrostBackend backend = mFrostEngine.getAsyncBackend(mFrostBackend);
+        final int levelCount = !replaceSnapshot && mFrostingDuration > 0 ? PYRAMID_LEVELS : 1;
+
+        mFrostEngine.getAsyncExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                // Superseded while waiting for a thread, so there is no point in blurring.
+                if (generation != mFrostGeneration) {
+                    mFrostEngine.releaseBitmap(capture);
+                    return;
+                }
+
+                final FrostPyramidDrawable pyramid = buildPyramid(capture, blurRadius, levelCount, plan, backend);
+                mFrostEngine.releaseBitmap(capture);
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mFrostGeneration || mDestroyed) {
+                            pyramid.releaseIntermediateLevels(mFrostEngine.getBitmapPool());
+                            mFrostEngine.releaseBitmap(pyramid.getLastLevel());
+                            return;
+                        }
+
+                        if (replaceSnapshot) {
+                            setFrostedBitmap(blurView, pyramid.getLastLevel());
+                            saveSnapshot();
+                        } else {
+                            showFrost(view, blurView, isNewView, pyramid);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
     public void defrost() {
         final FrameLayout view = getContentView();
+        mFrostGeneration++;
+
+        if (mPipeline != null) {
+            mPipeline.invalidate();
+            reclaimPipelineFront();
+        }
 
-        if (mIsLiveFrostEnabled) {
-            mActivityView = view;
-        } else {
+        // Any frost view is faded out, live or not. Only checking for live frosting would leave a static frost, or a
+        // snapshot still waiting for its frost, on the screen for good.
+        if (mFrostView == null) {
             Logger.info("Activity not frosted. Not defrosting.");
             return;
         }
 
-
         if (view == null) {
             Logger.debug("Activity content view null.");
             return;
         }
 
-        final Bitmap[] blurredContent = new Bitmap[1];
-        final Bitmap sourceBitmap = mFrostEngine.getBitmapForView(view, mDownsampleFactor);
-        ValueAnimator animator = ValueAnimator.ofInt(mBlurRadius, 1);
+        // Live frosting stops right away, so that the frost view keeps its last frame while it fades out.
+        FrostScheduler.getInstance().removeFrameCallback(this);
+
+        final View frostView = mFrostView;
+        ValueAnimator animator = ValueAnimator.ofFloat(1, 0);
         animator.setDuration(mFrostingDuration);
-        final int[] averageFrameTime = new int[1];
-        final int[] framesRendered = new int[1];
 
         animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
             @Override
             public void onAnimationUpdate(ValueAnimator animation) {
-
-                long startTime = System.currentTimeMillis();
-                Bitmap bitmapToBlur;
-                mFrostView.setAlpha(0);
-                bitmapToBlur = mFrostEngine.getBitmapForView(view, mDownsampleFactor);
-                mFrostView.setAlpha(1);
-
-                blurredContent[0] = mFrostEngine.frost(bitmapToBlur, (int) animation.getAnimatedValue());
-
-                mFrostView.setBackground(new BitmapDrawable(mContext.getResources(), blurredContent[0]));
-                long frameTime = System.currentTimeMillis() - startTime;
-                Logger.debug("Frame drawn in : " + (frameTime) + " millis");
-                framesRendered[0]++;
-                averageFrameTime[0] = (int) (averageFrameTime[0] + frameTime);
-
+                frostView.setAlpha((float) animation.getAnimatedValue());
             }
         });
 
@@ -293,16 +549,13 @@ public class FrostGlass implements Choreographer.FrameCallback {
 
             @Override
             public void onAnimationEnd(Animator animation) {
-                averageFrameTime[0] /= framesRendered[0];
-                Logger.info("======================================");
-                Logger.info("| Average Frame draw time : " + averageFrameTime[0]);
-                Logger.info("======================================");
-
                 mIsLiveFrostEnabled = false;
-                Choreographer.getInstance().removeFrameCallback(FrostGlass.this);
+                FrostScheduler.getInstance().removeFrameCallback(FrostGlass.this);
 
-                view.removeView(mFrostView);
+                view.removeView(frostView);
                 mFrostView = null;
+
+                mFrostDrawable.release();
             }
 
             @Override
@@ -324,15 +577,145 @@ public class FrostGlass implements Choreographer.FrameCallback {
     @Override
     public void doFrame(long frameTimeNanos) {
         if (mFrostView != null && mActivityView != null) {
+            if (!mFramePacer.shouldRender(frameTimeNanos)) {
+                // Still collected on skipped frames, so that a finished blur is not displayed later than needed.
+                if (mPipeline != null) {
+                    displayPipelineResult();
+                }
+            } else if (mPipeline != null) {
+                frostFrameAsync();
+            } else {
+                final BlurPlan plan = getBlurPlan();
+                final long frostStart = System.nanoTime();
+
+                // The frame is captured and blurred into the back buffer of the frost drawable, which is kept between
+                // frames, so that live frosting allocates nothing.
+                final float downsampleFactor = plan.getDownsampleFactor();
+                final Bitmap backBuffer = mFrostDrawable.obtainBackBuffer(
+                        (int) (mActivityView.getWidth() / downsampleFactor),
+                        (int) (mActivityView.getHeight() / downsampleFactor), mBitmapConfig);
+
+                mFrostView.setAlpha(0);
+                mFrostEngine.captureView(mActivityView, downsampleFactor, backBuffer);
+                mFrostView.setAlpha(1);
+
+                // Nothing behind the frost view has changed, so the frosted bitmap on screen is still valid.
+                if (mChangeDetector.hasChanged(backBuffer)) {
+                    mFrostEngine.frost(backBuffer, backBuffer, plan.getRadius(), mFrostOverlay, mFrostBackend);
+                    onFrameFrosted(System.nanoTime() - frostStart);
+
+                    // The drawable records the draw itself, when the frame is drawn.
+                    showFrostDrawable(mFrostView);
+                    mFrostDrawable.swap();
+                } else {
+                    mFrostEngine.getMetrics().recordSkippedFrame();
+                }
+                mFrostEngine.getMetrics().frameCompleted();
+            }
+            FrostScheduler.getInstance().postFrameCallback(this, mFrostPriority);
+        }
+    }
+
+    /**
+     * Displays the frame blurred by the pipeline, if one is ready, and captures the next frame for it once the
+     * pipeline is free.
+     */
+    private void frostFrameAsync() {
+        displayPipelineResult();
+
+        if (!mPipeline.isInFlight()) {
+            final BlurPlan plan = getBlurPlan();
+            final float downsampleFactor = plan.getDownsampleFactor();
+            final Bitmap backBuffer = mPipeline.obtainBackBuffer(
+                    (int) (mActivityView.getWidth() / downsampleFactor),
+                    (int) (mActivityView.getHeight() / downsampleFactor), mBitmapConfig);
+
+            final long captureStart = System.nanoTime();
             mFrostView.setAlpha(0);
-            mFrostedBitmap = mFrostEngine.fastFrost(mActivityView, mBlurRadius, mDownsampleFactor);
+            mFrostEngine.captureView(mActivityView, downsampleFactor, backBuffer);
             mFrostView.setAlpha(1);
+            mCaptureNanos = System.nanoTime() - captureStart;
+
+            if (mChangeDetector.hasChanged(backBuffer)) {
+                mPipeline.submit(plan.getRadius(), mFrostBackend, mFrostOverlay);
+            } else {
+                mFrostEngine.getMetrics().recordSkippedFrame();
+            }
+        }
+    }
+
+    /**
+     * Displays the frame blurred by the pipeline, if one is ready.
+     */
+    private void displayPipelineResult() {
+        final Bitmap frostedBitmap = mPipeline.swap();
+        if (frostedBitmap != null) {
+            onFrameFrosted(mCaptureNanos + mPipeline.getLastBlurNanos());
+
+            // The bitmap displayed until now may still come from the animation, in which case the drawable owns it
+            // and hands it back to the pool.
+            showFrostDrawable(mFrostView);
+            mFrostDrawable.setBorrowedBitmap(frostedBitmap);
+            mFrostEngine.getMetrics().frameCompleted();
+        }
+    }
+
+    /**
+     * Takes back the ownership of the bitmap the pipeline last published, so that it is released to the pool once it
+     * is replaced like any other frosted bitmap.
+     */
+    private void reclaimPipelineFront() {
+        final Bitmap front = mPipeline.detachFront();
+        if (front != null) {
+            mFrostDrawable.setBitmap(front);
+        }
+    }
+
+    /**
+     * Returns the blur plan for the current radius, quality and backend. Radii larger than the backend supports are
+     * captured at a higher downsample factor and blurred with a smaller kernel. The frost view stretches the bitmap
+     * to the screen, so the result looks the same as a direct blur would.
+     */
+    private BlurPlan getBlurPlan() {
+        if (mBlurPlan == null) {
+            if (mQualityController != null) {
+                mBlurPlan = FrostEngine.planBlur(mQualityController.scaleRadius(mBlurRadius, mDownsampleFactor),
+                        mQualityController.getDownsampleFactor(), mFrostBackend);
+            } else {
+                mBlurPlan = FrostEngine.planBlur(mBlurRadius, mDownsampleFactor, mFrostBackend);
+            }
+        }
+
+        return mBlurPlan;
+    }
+
+    /**
+     * Feeds the time taken to frost a live frame to the adaptive quality controller, if enabled, and plans the blur
+     * again when the controller changes the downsample factor.
+     */
+    private void onFrameFrosted(long frostNanos) {
+        if (mQualityController != null && mQualityController.onFrameMeasured(frostNanos)) {
+            mBlurPlan = null;
+            mChangeDetector.reset();
+        }
+    }
 
-            mFrostedBitmapCanvas = new Canvas(mFrostedBitmap);
-            mFrostedBitmapCanvas.drawPaint(mOverlayPaint);
+    /**
+     * Displays the given bitmap on the frost view, and hands the previously displayed bitmap back to the bitmap pool
+     * of the engine.
+     */
+    private void setFrostedBitmap(View frostView, Bitmap bitmap) {
+        showFrostDrawable(frostView);
+        mFrostDrawable.setBitmap(bitmap);
+    }
 
-            mFrostView.setBackground(new BitmapDrawable(mActivityView.getResources(), mFrostedBitmap));
-            Choreographer.getInstance().postFrameCallback(this);
+    /**
+     * Makes the frost drawable the background of the frost view, if it is not already. The background only changes
+     * when the frost starts, or once the frost animation ends.
+     */
+    private void showFrostDrawable(View frostView) {
+        if (frostView.getBackground() != mFrostDrawable) {
+            frostView.setBackground(mFrostDrawable);
         }
     }
 
@@ -340,15 +723,39 @@ public class FrostGlass implements Choreographer.FrameCallback {
         return mIsLiveFrostEnabled;
     }
 
+    /**
+     * @return The number of live frames that were not blurred again, because the screen content had not changed.
+     */
+    public int getSkippedFrameCount() {
+        return mChangeDetector.getSkippedFrameCount();
+    }
+
     public void resumeFrost() {
-        Choreographer.getInstance().postFrameCallback(this);
+        mChangeDetector.reset();
+        mFramePacer.reset();
+        FrostScheduler.getInstance().postFrameCallback(this, mFrostPriority);
     }
 
     public void pauseFrost() {
-        Choreographer.getInstance().removeFrameCallback(this);
+        FrostScheduler.getInstance().removeFrameCallback(this);
+
+        if (mPipeline != null) {
+            mPipeline.invalidate();
+        }
     }
 
+    /**
+     * Stops frosting and gives back the reference this instance holds on the {@link FrostEngine}. The engine is only
+     * shut down once no other frosted view uses it. Must be called once, when the activity is destroyed.
+     */
     public void destroy() {
-        mFrostEngine.shutdown();
+        if (mDestroyed) {
+            return;
+        }
+
+        mDestroyed = true;
+        FrostScheduler.getInstance().removeFrameCallback(this);
+        setAsyncLiveFrost(false);
+        mFrostEngine.release();
     }
 }
@@ -0,0 +1,213 @@
+package in.robinrex.frostglass;
+
+import java.util.Arrays;
+
+/**
+ * Collects nanosecond timings of the stages of every frosted frame, and keeps rolling percentiles over the most recent
+ * {@link #WINDOW_SIZE} samples of each stage. Recording a sample does not allocate, so metrics are always on.
+ * <p/>
+ * The metrics of the library are available through {@link FrostEngine#getMetrics()}. Apps can register a
+ * {@link Listener} to forward them to their own telemetry.
+ *
+ * @author Robin Rex G.
+ */
+public class FrostMetrics {
+
+    /**
+     * The number of recent samples kept for each stage.
+     */
+    public static final int WINDOW_SIZE = 128;
+
+    /**
+     * The stages of a frosted frame.
+     */
+    public enum Stage {
+        /**
+         * Drawing the source view into the capture bitmap.
+         */
+        CAPTURE,
+        /**
+         * Copying the captured pixels to the blur backend.
+         */
+        UPLOAD,
+        /**
+         * Blurring the pixels.
+         */
+        BLUR,
+        /**
+         * Copying the blurred pixels back into a bitmap.
+         */
+        COPY_BACK,
+        /**
+         * Drawing or displaying the frosted bitmap.
+         */
+        DRAW
+    }
+
+    /**
+     * Receives a callback whenever a frosted frame has been completed.
+     */
+    public interface Listener {
+
+        /**
+         * Called after every frosted frame, on the thread that completed it, which is usually the UI thread. The
+         * timings of the frame are available through {@link FrostMetrics#getLastNanos(Stage)}.
+         *
+         * @param metrics The metrics that measured the frame.
+         */
+        void onFrameCompleted(FrostMetrics metrics);
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final long[][] mSamples = new long[STAGES.length][WINDOW_SIZE];
+
+    private final int[] mSampleCounts = new int[STAGES.length];
+
+    private final int[] mNextSamples = new int[STAGES.length];
+
+    private final long[] mLastNanos = new long[STAGES.length];
+
+    private final long[] mSortBuffer = new long[WINDOW_SIZE];
+
+    private long mFrameCount;
+
+    private long mSkippedFrameCount;
+
+    private volatile Listener[] mListeners = new Listener[0];
+
+    /**
+     * Records the duration of a stage of the current frame.
+     *
+     * @param stage The stage that was measured.
+     * @param nanos The duration of the stage, in nanoseconds.
+     */
+    public synchronized void record(Stage stage, long nanos) {
+        final int index = stage.ordinal();
+        mSamples[index][mNextSamples[index]] = nanos;
+        mNextSamples[index] = (mNextSamples[index] + 1) % WINDOW_SIZE;
+        mSampleCounts[index] = Math.min(mSampleCounts[index] + 1, WINDOW_SIZE);
+        mLastNanos[index] = nanos;
+    }
+
+    /**
+     * Records a frame whose blur was skipped, because its content had not changed.
+     */
+    public synchronized void recordSkippedFrame() {
+        mSkippedFrameCount++;
+    }
+
+    /**
+     * Marks the end of a frosted frame, and notifies the registered listeners.
+     */
+    public void frameCompleted() {
+        synchronized (this) {
+            mFrameCount++;
+        }
+
+        final Listener[] listeners = mListeners;
+        for (Listener listener : listeners) {
+            listener.onFrameCompleted(this);
+        }
+    }
+
+    /**
+     * @param stage The stage.
+     * @return The duration of the latest recorded sample of the given stage, in nanoseconds.
+     */
+    public synchronized long getLastNanos(Stage stage) {
+        return mLastNanos[stage.ordinal()];
+    }
+
+    /**
+     * Returns the given percentile of the recent samples of a stage.
+     *
+     * @param stage      The stage.
+     * @param percentile The percentile, between 0 and 100. For example 50, 95 or 99.
+     * @return The percentile in nanoseconds, or 0 if the stage has no samples yet.
+     */
+    public synchronized long getPercentileNanos(Stage stage, int percentile) {
+        final int index = stage.ordinal();
+        final int count = mSampleCounts[index];
+        if (count == 0) {
+            return 0;
+        }
+
+        System.arraycopy(mSamples[index], 0, mSortBuffer, 0, count);
+        Arrays.sort(mSortBuffer, 0, count);
+
+        final int rank = (int) Math.ceil(Math.max(0, Math.min(100, percentile)) / 100.0 * count);
+        return mSortBuffer[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * @return The number of frosted frames completed since the metrics were created or reset.
+     */
+    public synchronized long getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * @return The number of frames whose blur was skipped because their content had not changed.
+     */
+    public synchronized long getSkippedFrameCount() {
+        return mSkippedFrameCount;
+    }
+
+    /**
+     * Clears every sample and counter.
+     */
+    public synchronized void reset() {
+        for (int i = 0; i < STAGES.length; i++) {
+            mSampleCounts[i] = 0;
+            mNextSamples[i] = 0;
+            mLastNanos[i] = 0;
+        }
+
+        mFrameCount = 0;
+        mSkippedFrameCount = 0;
+    }
+
+    /**
+     * Registers a listener that is notified after every frosted frame.
+     *
+     * @param listener The listener.
+     */
+    public synchronized void addListener(Listener listener) {
+        final Listener[] listeners = Arrays.copyOf(mListeners, mListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        mListeners = listeners;
+    }
+
+    /**
+     * Unregisters a listener added with {@link #addListener(Listener)}.
+     *
+     * @param listener The listener.
+     */
+    public synchronized void removeListener(Listener listener) {
+        final Listener[] listeners = mListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                final Listener[] remaining = new Listener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners, i + 1, remaining, i, listeners.length - i - 1);
+                mListeners = remaining;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        final StringBuilder builder = new StringBuilder("FrostMetrics{frames=").append(mFrameCount)
+                .append(", skipped=").append(mSkippedFrameCount);
+
+        for (Stage stage : STAGES) {
+            builder.append(", ").append(stage).append("=[p50=").append(getPercentileNanos(stage, 50))
+                    .append(", p95=").append(getPercentileNanos(stage, 95))
+                    .append(", p99=").append(getPercentileNanos(stage, 99)).append("]");
+        }
+
+        return builder.append("}").toString();
+    }
+}
@@ -0,0 +1,171 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+/**
+ * Blurs captured frames on a dedicated worker thread for live frosting. Frames are captured on the UI thread into the
+ * back buffer, blurred on the worker and published by swapping the back and front buffers on a later frame.
+ * <p/>
+ * At most one frame is in flight at a time. While a frame is in flight, callers skip capturing instead of queueing
+ * more work, and results that were invalidated while in flight are dropped instead of being displayed.
+ * <p/>
+ * Except for the blur itself, every method has to be called on the UI thread.
+ *
+ * @author Robin Rex G.
+ */
+class FrostPipeline {
+
+    private final HandlerThread mThread;
+
+    private final Handler mHandler;
+
+    private final FrostBitmapPool mBitmapPool;
+
+    private Bitmap mFront, mBack;
+
+    private FrostBackend mBackend;
+
+    private int mRadius;
+
+    private int mOverlayColor;
+
+    /**
+     * Incremented whenever in-flight results become stale.
+     */
+    private int mGeneration;
+
+    private int mSubmittedGeneration;
+
+    private boolean mInFlight;
+
+    private volatile boolean mResultReady;
+
+    private volatile long mBlurNanos;
+
+    private final Runnable mBlurTask = new Runnable() {
+        @Override
+        public void run() {
+            final long start = System.nanoTime();
+            mBackend.frost(mBack, mBack, mRadius, mOverlayColor);
+
+            mBlurNanos = System.nanoTime() - start;
+            mResultReady = true;
+        }
+    };
+
+    FrostPipeline(FrostBitmapPool bitmapPool) {
+        mBitmapPool = bitmapPool;
+        mThread = new HandlerThread("FrostPipeline", Process.THREAD_PRIORITY_DISPLAY);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+    }
+
+    /**
+     * @return True if a frame has been submitted and its result has not been collected with {@link #swap()} yet.
+     */
+    boolean isInFlight() {
+        return mInFlight;
+    }
+
+    /**
+     * Returns the back buffer, sized for the next capture. Must not be called while a frame is in flight.
+     *
+     * @param width  The width of the capture.
+     * @param height The height of the capture.
+     * @param config The config of the capture.
+     * @return The bitmap to capture the next frame into.
+     */
+    Bitmap obtainBackBuffer(int width, int height, Bitmap.Config config) {
+        if (mInFlight) {
+            throw new FGException("Cannot capture while a frame is in flight.");
+        }
+
+        if (mBack == null || mBack.getWidth() != width || mBack.getHeight() != height || mBack.getConfig() != config) {
+            mBitmapPool.release(mBack);
+            mBack = mBitmapPool.acquire(width, height, config);
+        }
+
+        return mBack;
+    }
+
+    /**
+     * Sends the captured back buffer to the worker thread to be blurred and tinted.
+     *
+     * @param radius       The blur radius.
+     * @param backend      The backend that performs the blur.
+     * @param overlayColor The color drawn over the blurred frame.
+     */
+    void submit(int radius, FrostBackend backend, int overlayColor) {
+        mRadius = radius;
+        mBackend = backend;
+        mOverlayColor = overlayColor;
+        mSubmittedGeneration = mGeneration;
+        mInFlight = true;
+        mHandler.post(mBlurTask);
+    }
+
+    /**
+     * Publishes the blurred frame if it is ready, by swapping it with the front buffer.
+     *
+     * @return The new front buffer, or null if no fresh result is available.
+     */
+    Bitmap swap() {
+        if (!mResultReady) {
+            return null;
+        }
+
+        mResultReady = false;
+        mInFlight = false;
+
+        if (mSubmittedGeneration != mGeneration) {
+            return null;
+        }
+
+        final Bitmap front = mBack;
+        mBack = mFront;
+        mFront = front;
+        return front;
+    }
+
+    /**
+     * @return The time the worker spent blurring and tinting the last completed frame, in nanoseconds.
+     */
+    long getLastBlurNanos() {
+        return mBlurNanos;
+    }
+
+    /**
+     * Marks the frame in flight as stale, so that its result is dropped when it completes.
+     */
+    void invalidate() {
+        mGeneration++;
+    }
+
+    /**
+     * Gives up the ownership of the front buffer, which the caller may still be displaying.
+     *
+     * @return The front buffer, or null if no frame has been published yet.
+     */
+    Bitmap detachFront() {
+        final Bitmap front = mFront;
+        mFront = null;
+        return front;
+    }
+
+    /**
+     * Stops the worker thread. The back buffer is returned to the pool unless the worker may still be using it.
+     */
+    void quit() {
+        invalidate();
+        mThread.quitSafely();
+
+        if (!mInFlight) {
+            mBitmapPool.release(mBack);
+        }
+
+        mBack = null;
+    }
+}
@@ -0,0 +1,145 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * The pixels of a bitmap, held as the premultiplied ints the blur kernels work on. ARGB_8888 memory is copied as is,
+ * with its red and blue channels swapped compared to a color int, and other configs are read and premultiplied.
+ *
+ * @author Robin Rex G.
+ */
+final class FrostPixels {
+
+    /**
+     * ARGB_8888 pixels are stored as RGBA bytes, which only read as ints with the alpha in the top byte on little
+     * endian devices.
+     */
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private int[] mPixels;
+
+    private IntBuffer mBuffer;
+
+    /**
+     * True if the pixels were copied as is, with the red and blue channels swapped.
+     */
+    private boolean mCopiedAsIs;
+
+    /**
+     * Reads the pixels of the given bitmap.
+     *
+     * @param bitmap The bitmap to read.
+     * @return The premultiplied pixels, in rows of the width of the bitmap.
+     */
+    int[] read(Bitmap bitmap) {
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+
+        if (mPixels == null || mPixels.length < width * height) {
+            mPixels = new int[width * height];
+            mBuffer = IntBuffer.wrap(mPixels);
+        }
+
+        mCopiedAsIs = isCopiedAsIs(bitmap);
+        if (mCopiedAsIs) {
+            mBuffer.clear();
+            bitmap.copyPixelsToBuffer(mBuffer);
+        } else {
+            bitmap.getPixels(mPixels, 0, width, 0, 0, width, height);
+            if (bitmap.hasAlpha()) {
+                for (int i = 0; i < width * height; i++) {
+                    mPixels[i] = premultiply(mPixels[i]);
+                }
+            }
+        }
+
+        return mPixels;
+    }
+
+    /**
+     * Writes the pixels read last, as changed since, into the given bitmap of the same size.
+     *
+     * @param bitmap The bitmap to write to.
+     */
+    void write(Bitmap bitmap) {
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+
+        if (isCopiedAsIs(bitmap)) {
+            if (!mCopiedAsIs) {
+                for (int i = 0; i < width * height; i++) {
+                    mPixels[i] = swapRedBlue(mPixels[i]);
+                }
+            }
+
+            mBuffer.clear();
+            bitmap.copyPixelsFromBuffer(mBuffer);
+        } else {
+            for (int i = 0; i < width * height; i++) {
+                mPixels[i] = unpremultiply(mCopiedAsIs ? swapRedBlue(mPixels[i]) : mPixels[i]);
+            }
+
+            bitmap.setPixels(mPixels, 0, width, 0, 0, width, height);
+        }
+    }
+
+    /**
+     * Converts a color to the channel order of the pixels read last, for blending it over them.
+     *
+     * @param color The ARGB color.
+     * @return The color in the channel order of the pixels.
+     */
+    int toPixelOrder(int color) {
+        return mCopiedAsIs ? swapRedBlue(color) : color;
+    }
+
+    /**
+     * Releases the buffer.
+     */
+    void release() {
+        mPixels = null;
+        mBuffer = null;
+    }
+
+    /**
+     * @return True if the memory of the bitmap holds premultiplied pixels that can be copied as is.
+     */
+    static boolean isCopiedAsIs(Bitmap bitmap) {
+        return LITTLE_ENDIAN && bitmap.getConfig() == Bitmap.Config.ARGB_8888
+                && bitmap.getRowBytes() == bitmap.getWidth() * 4;
+    }
+
+    static int premultiply(int color) {
+        final int alpha = color >>> 24;
+        if (alpha == 255) {
+            return color;
+        }
+
+        final int r = (((color >> 16) & 0xFF) * alpha + 127) / 255;
+        final int g = (((color >> 8) & 0xFF) * alpha + 127) / 255;
+        final int b = ((color & 0xFF) * alpha + 127) / 255;
+        return alpha << 24 | r << 16 | g << 8 | b;
+    }
+
+    static int unpremultiply(int pixel) {
+        final int alpha = pixel >>> 24;
+        if (alpha == 255) {
+            return pixel;
+        } else if (alpha == 0) {
+            return 0;
+        }
+
+        final int half = alpha / 2;
+        final int r = Math.min(255, (((pixel >> 16) & 0xFF) * 255 + half) / alpha);
+        final int g = Math.min(255, (((pixel >> 8) & 0xFF) * 255 + half) / alpha);
+        final int b = Math.min(255, ((pixel & 0xFF) * 255 + half) / alpha);
+        return alpha << 24 | r << 16 | g << 8 | b;
+    }
+
+    static int swapRedBlue(int pixel) {
+        return pixel & 0xFF00FF00 | (pixel >> 16) & 0xFF | (pixel & 0xFF) << 16;
+    }
+}
@@ -0,0 +1,98 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.Drawable;
+
+/**
+ * A drawable that animates a frost in or out by cross-fading between a few precomputed blur levels, instead of
+ * blurring the screen again on every animation frame.
+ * <p/>
+ * The levels are ordered from the least to the most blurred. At a progress of 0 nothing is drawn, and at a progress of
+ * 1 the last level is drawn fully opaque.
+ *
+ * @author Robin Rex G.
+ */
+class FrostPyramidDrawable extends Drawable {
+
+    private final Bitmap[] mLevels;
+
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private float mProgress;
+
+    private int mAlpha = 255;
+
+    FrostPyramidDrawable(Bitmap[] levels) {
+        mLevels = levels;
+    }
+
+    /**
+     * Sets how far the frost has progressed, and redraws the drawable.
+     *
+     * @param progress The progress, between 0 (not frosted) and 1 (fully frosted).
+     */
+    void setProgress(float progress) {
+        mProgress = Math.max(0, Math.min(1, progress));
+        invalidateSelf();
+    }
+
+    /**
+     * @return The most blurred level, which is what this drawable shows once the frost has completed.
+     */
+    Bitmap getLastLevel() {
+        return mLevels[mLevels.length - 1];
+    }
+
+    /**
+     * Hands every level except the last one back to the given pool. The drawable must not be drawn afterwards.
+     *
+     * @param pool The pool the levels were taken from.
+     */
+    void releaseIntermediateLevels(FrostBitmapPool pool) {
+        for (int i = 0; i < mLevels.length - 1; i++) {
+            pool.release(mLevels[i]);
+            mLevels[i] = null;
+        }
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        final float position = mProgress * mLevels.length;
+        final int upper = Math.min((int) Math.ceil(position), mLevels.length) - 1;
+
+        if (upper < 0) {
+            return;
+        }
+
+        // The level below is drawn opaque, and the level above fades in over it.
+        if (upper > 0) {
+            mPaint.setAlpha(mAlpha);
+            canvas.drawBitmap(mLevels[upper - 1], null, getBounds(), mPaint);
+        }
+
+        final float fraction = position - upper;
+        mPaint.setAlpha((int) (mAlpha * fraction));
+        canvas.drawBitmap(mLevels[upper], null, getBounds(), mPaint);
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mAlpha = alpha;
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
@@ -0,0 +1,126 @@
+package in.robinrex.frostglass;
+
+/**
+ * Moves the downsample factor of live frosting along a fixed ladder, so that frosting a frame stays within a time
+ * budget. Frame times are smoothed, and the factor settles for {@link #SETTLE_FRAMES} frames after every change.
+ *
+ * @author Robin Rex G.
+ */
+class FrostQualityController {
+
+    /**
+     * The downsample factors the controller chooses from.
+     */
+    static final int[] DOWNSAMPLE_LADDER = {1, 2, 3, 4, 6, 8, 12, 16, 24, 32};
+
+    /**
+     * The number of frames measured after a change before the factor can change again.
+     */
+    static final int SETTLE_FRAMES = 30;
+
+    /**
+     * The number of consecutive frames the average has to stay over the budget for the factor to be raised.
+     */
+    static final int OVER_BUDGET_FRAMES = 5;
+
+    private static final float SMOOTHING = 0.2f;
+
+    /**
+     * The fraction of the budget the projected cost of a finer step has to stay under for the factor to be lowered.
+     */
+    private static final float LOWER_HEADROOM = 0.75f;
+
+    private final long mBudgetNanos;
+
+    private int mStep;
+
+    private double mAverageNanos;
+
+    private int mSamples;
+
+    private int mFramesOverBudget;
+
+    /**
+     * @param budgetNanos             The time frosting a frame should take, in nanoseconds.
+     * @param initialDownsampleFactor The downsample factor to start from. It is rounded up to a step of the ladder.
+     */
+    FrostQualityController(long budgetNanos, int initialDownsampleFactor) {
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("Frame budget must be positive." + budgetNanos);
+        }
+
+        mBudgetNanos = budgetNanos;
+        mStep = DOWNSAMPLE_LADDER.length - 1;
+
+        for (int i = 0; i < DOWNSAMPLE_LADDER.length; i++) {
+            if (DOWNSAMPLE_LADDER[i] >= initialDownsampleFactor) {
+                mStep = i;
+                break;
+            }
+        }
+    }
+
+    /**
+     * Feeds the time taken to frost a frame.
+     *
+     * @param frostNanos The time spent capturing and blurring the frame, in nanoseconds.
+     * @return True if the downsample factor changed, in which case the blur has to be planned again.
+     */
+    boolean onFrameMeasured(long frostNanos) {
+        mAverageNanos = mSamples == 0 ? frostNanos : mAverageNanos + SMOOTHING * (frostNanos - mAverageNanos);
+        mSamples++;
+
+        mFramesOverBudget = mAverageNanos > mBudgetNanos ? mFramesOverBudget + 1 : 0;
+
+        if (mSamples < SETTLE_FRAMES) {
+            return false;
+        }
+
+        if (mFramesOverBudget >= OVER_BUDGET_FRAMES && mStep < DOWNSAMPLE_LADDER.length - 1) {
+            return moveTo(mStep + 1);
+        }
+
+        if (mStep > 0) {
+            // The cost of a frame grows with its area, so with the square of the downsample ratio.
+            final double ratio = (double) DOWNSAMPLE_LADDER[mStep] / DOWNSAMPLE_LADDER[mStep - 1];
+            if (mAverageNanos * ratio * ratio < mBudgetNanos * LOWER_HEADROOM) {
+                return moveTo(mStep - 1);
+            }
+        }
+
+        return false;
+    }
+
+    private boolean moveTo(int step) {
+        mStep = step;
+        mSamples = 0;
+        mFramesOverBudget = 0;
+        return true;
+    }
+
+    /**
+     * @return The time frosting a frame should take, in nanoseconds.
+     */
+    long getBudgetNanos() {
+        return mBudgetNanos;
+    }
+
+    /**
+     * @return The downsample factor frames should currently be captured with.
+     */
+    int getDownsampleFactor() {
+        return DOWNSAMPLE_LADDER[mStep];
+    }
+
+    /**
+     * Converts a blur radius chosen for one downsample factor to the current factor, so that the blur keeps the same
+     * size on screen.
+     *
+     * @param radius           The blur radius, in pixels of the content downsampled by {@code downsampleFactor}.
+     * @param downsampleFactor The downsample factor the radius was chosen for.
+     * @return The radius in pixels of the content downsampled by the current factor, at least 1.
+     */
+    int scaleRadius(int radius, int downsampleFactor) {
+        return Math.max(1, Math.round((float) radius * downsampleFactor / getDownsampleFactor()));
+    }
+}
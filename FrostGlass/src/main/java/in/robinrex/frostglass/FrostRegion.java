@@ -0,0 +1,44 @@
+package in.robinrex.frostglass;
+
+/**
+ * The part of a source view that has to be captured to frost a glass view: the bounds of the glass, grown by a halo as
+ * wide as the blur so that the pixels under the edges of the glass are blurred with their real neighbours.
+ * <p/>
+ * The region keeps its size while the glass moves over the source, and is shifted rather than shrunk near the edges of
+ * the source, so that the capture buffers do not have to be reallocated on every frame of a scroll. Its origin is
+ * aligned to the downsample factor, so that moving the glass does not make the downsampled pixels shimmer.
+ *
+ * @author Robin Rex G.
+ */
+class FrostRegion {
+
+    int left, top, width, height;
+
+    /**
+     * Computes the region for the given glass bounds. Every value is in pixels of the source view.
+     *
+     * @param glassLeft    The left edge of the glass, relative to the source view.
+     * @param glassTop     The top edge of the glass, relative to the source view.
+     * @param glassWidth   The width of the glass.
+     * @param glassHeight  The height of the glass.
+     * @param halo         The distance the blur reaches, by which the glass bounds are grown on every side.
+     * @param sourceWidth  The width of the source view.
+     * @param sourceHeight The height of the source view.
+     * @param alignment    The downsample factor the region is captured with.
+     */
+    void set(int glassLeft, int glassTop, int glassWidth, int glassHeight, int halo, int sourceWidth,
+             int sourceHeight, int alignment) {
+        width = Math.min(glassWidth + 2 * halo + alignment, sourceWidth);
+        height = Math.min(glassHeight + 2 * halo + alignment, sourceHeight);
+        left = align(clamp(glassLeft - halo, sourceWidth - width), alignment);
+        top = align(clamp(glassTop - halo, sourceHeight - height), alignment);
+    }
+
+    private static int clamp(int start, int maxStart) {
+        return Math.max(0, Math.min(start, maxStart));
+    }
+
+    private static int align(int start, int alignment) {
+        return start - start % alignment;
+    }
+}
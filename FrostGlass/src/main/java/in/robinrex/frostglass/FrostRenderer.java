@@ -0,0 +1,603 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.drawable.ColorDrawable;
+import android.os.Build;
+import android.view.View;
+
+/**
+ * Captures, frosts and draws the content of a view on behalf of a glass view. This holds the state and the buffers
+ * shared by {@link FGView} and {@link FGLayout}.
+ * <p/>
+ * On devices where the platform can blur views itself, see {@link RenderEffectFrost}, the glass is frosted by the
+ * hardware renderer instead, and nothing is captured into bitmaps. The bitmap path is kept for older devices, software
+ * drawing and shared sources.
+ *
+ * @author Robin Rex G.
+ */
+class FrostRenderer {
+
+    private final View mGlass;
+
+    private View mBlurredView;
+
+    private FrostSource mSource;
+
+    private boolean mAttached;
+
+    private boolean mLive;
+
+    /**
+     * True once a frosted result matching the current source and buffers is available.
+     */
+    private boolean mHasResult;
+
+    /**
+     * True while the glass is drawn on software canvases, on which the platform blur cannot draw, so that the glass is
+     * rendered through bitmaps even where the platform blur is used.
+     */
+    private boolean mSoftwareDraw;
+
+    /**
+     * True if a frame has been rendered since the last draw.
+     */
+    private boolean mRendered;
+
+    private FrostBackend mFrostBackend;
+
+    private boolean mEdgePaddingEnabled = false;
+
+    private int mDownsampleFactor;
+
+    private int mOverlayColor;
+
+    /**
+     * Draws the overlay color over the parts of the glass the frosted result does not cover.
+     */
+    private final Paint mOverlayPaint = new Paint();
+
+    private int mBlurRadius = 1;
+
+    private BlurPlan mBlurPlan;
+
+    private boolean mBlurPlanChanged = true;
+
+    /**
+     * The downsample factor the content is actually captured with, including the extra step of the blur plan.
+     */
+    private int mScaleFactor;
+
+    private Bitmap mBitmapToBlur, mBlurredBitmap;
+
+    private Canvas mBlurringCanvas;
+
+    private final FrostChangeDetector mChangeDetector = new FrostChangeDetector();
+
+    private FrostQualityController mQualityController;
+
+    private final FrostRegion mRegion = new FrostRegion();
+
+    /**
+     * The part of the blurred view the platform blur records, apart from the region of the bitmap path.
+     */
+    private final FrostRegion mPlatformRegion = new FrostRegion();
+
+    private Bitmap.Config mBitmapConfig = Bitmap.Config.ARGB_8888;
+
+    private boolean mPlatformFrostEnabled = true;
+
+    private boolean mScrollAware;
+
+    private RenderEffectFrost mPlatformFrost;
+
+    /**
+     * @param glass The glass view the renderer draws for.
+     */
+    FrostRenderer(View glass) {
+        mGlass = glass;
+    }
+
+    void setBlurredView(View blurredView) {
+        setSource(null);
+        mBlurredView = blurredView;
+        mHasResult = false;
+        mChangeDetector.reset();
+    }
+
+    View getBlurredView() {
+        return mBlurredView;
+    }
+
+    /**
+     * Draws the glass from a source shared with other glass views, instead of capturing the source on its own.
+     *
+     * @param source The shared source, or null to stop using it.
+     */
+    void setSource(FrostSource source) {
+        if (mSource != null && mAttached) {
+            mSource.detach(mGlass);
+        }
+
+        mSource = source;
+        mBlurredView = null;
+        mHasResult = false;
+
+        if (mSource != null && mAttached) {
+            mSource.attach(mGlass);
+        }
+    }
+
+    /**
+     * Called when the glass view is attached to a window.
+     */
+    void onAttached() {
+        mAttached = true;
+        FrostEngine.acquire(mGlass.getContext());
+
+        if (mSource != null) {
+            mSource.attach(mGlass);
+        }
+    }
+
+    /**
+     * Called when the glass view is detached from its window.
+     */
+    void onDetached() {
+        mAttached = false;
+
+        if (mSource != null) {
+            mSource.detach(mGlass);
+        }
+
+        releaseBuffers();
+        if (mPlatformFrost != null) {
+            mPlatformFrost.release();
+        }
+        FrostEngine.getInstance().release();
+    }
+
+    /**
+     * Hands the capture and blur buffers back to the pool. They are allocated again by the next {@link #prepare()}.
+     */
+    void releaseBuffers() {
+        final FrostBitmapPool pool = FrostEngine.getInstance().getBitmapPool();
+        pool.release(mBitmapToBlur);
+        pool.release(mBlurredBitmap);
+        mBitmapToBlur = null;
+        mBlurredBitmap = null;
+        mHasResult = false;
+        mChangeDetector.reset();
+
+        if (mBlurringCanvas != null) {
+            mBlurringCanvas.setBitmap(null);
+        }
+    }
+
+    void setFrostBackend(FrostBackend backend) {
+        if (backend != mFrostBackend) {
+            mFrostBackend = backend;
+            mBlurPlanChanged = true;
+        }
+    }
+
+    void setEdgePadding(boolean enabled) {
+        mEdgePaddingEnabled = enabled;
+    }
+
+    void setBlurRadius(int radius) {
+        if (radius != mBlurRadius) {
+            mBlurRadius = radius;
+            mBlurPlanChanged = true;
+        }
+    }
+
+    void setDownsampleFactor(int factor) {
+        if (factor <= 0) {
+            throw new IllegalArgumentException("Downsample factor must be in the range 1-100." +
+                    "" + factor);
+        }
+
+        if (factor != mDownsampleFactor) {
+            mDownsampleFactor = factor;
+            mBlurPlanChanged = true;
+
+            if (mQualityController != null) {
+                enableAdaptiveQuality(mQualityController.getBudgetNanos());
+            }
+        }
+    }
+
+    /**
+     * Lets the downsample factor follow the measured frost time, starting from the factor set by
+     * {@link #setDownsampleFactor(int)}. The blur radius is scaled with the factor, so that the blur keeps its size.
+     *
+     * @param budgetNanos The time capturing and blurring a frame should take, in nanoseconds.
+     */
+    void enableAdaptiveQuality(long budgetNanos) {
+        mQualityController = new FrostQualityController(budgetNanos, mDownsampleFactor);
+        mBlurPlanChanged = true;
+    }
+
+    void disableAdaptiveQuality() {
+        if (mQualityController != null) {
+            mQualityController = null;
+            mBlurPlanChanged = true;
+        }
+    }
+
+    void setOverlayColor(int color) {
+        mOverlayColor = color;
+
+        // The overlay is part of the blurred result, which has to be blurred again even if the view has not changed.
+        mChangeDetector.reset();
+    }
+
+    void setOpaque(boolean opaque) {
+        mBitmapConfig = opaque ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+    }
+
+    /**
+     * In scroll aware mode, frames that are the previous frame scrolled vertically are frosted by moving the previous
+     * result and blurring only the rows that changed. The rows have to match exactly, so the glass is then always
+     * frosted with the Java backend, whose kernel does the partial updates.
+     *
+     * @param scrollAware True to enable the scroll aware mode.
+     */
+    void setScrollAware(boolean scrollAware) {
+        if (scrollAware != mScrollAware) {
+            mScrollAware = scrollAware;
+            mChangeDetector.setTrackRows(scrollAware);
+            mBlurPlanChanged = true;
+        }
+    }
+
+    /**
+     * @return The backend the glass is actually frosted with.
+     */
+    private FrostBackend getEffectiveBackend() {
+        return mScrollAware ? FrostEngine.getInstance().getBackend(FrostEngine.Backend.JAVA) : mFrostBackend;
+    }
+
+    /**
+     * @param enabled False to always frost through bitmaps, even where the platform blur is available.
+     */
+    void setPlatformFrostEnabled(boolean enabled) {
+        if (enabled != mPlatformFrostEnabled) {
+            mPlatformFrostEnabled = enabled;
+
+            // The bitmaps are not rendered while the platform blur is used, so they are out of date either way.
+            mHasResult = false;
+        }
+    }
+
+    /**
+     * @return True if the glass is frosted by the platform blur rather than through bitmaps.
+     */
+    boolean usesPlatformFrost() {
+        return mPlatformFrostEnabled && mSource == null
+                && RenderEffectFrost.isSupported(Build.VERSION.SDK_INT, mGlass.isHardwareAccelerated());
+    }
+
+    /**
+     * Live glass views render from their {@link FrostScheduler} callback, and only draw the latest result when drawn.
+     *
+     * @param live True if the glass view is in live mode.
+     */
+    void setLive(boolean live) {
+        mLive = live;
+    }
+
+    /**
+     * Captures the part of the blurred view beneath the glass view and frosts it.
+     *
+     * @return True if a frosted result is available to draw.
+     */
+    boolean render() {
+        if (mSource != null) {
+            mHasResult = mSource.update();
+            return mHasResult;
+        }
+
+        // The platform blurs the view while drawing the glass, so there is nothing to capture ahead of it.
+        if (usesPlatformFrost() && !mSoftwareDraw) {
+            return mBlurredView != null;
+        }
+
+        return renderBitmap();
+    }
+
+    /**
+     * Captures the part of the blurred view beneath the glass view and frosts it through bitmaps, even where the
+     * platform blur is available.
+     *
+     * @return True if a frosted result is available to draw.
+     */
+    private boolean renderBitmap() {
+        if (mBlurredView == null || !prepare()) {
+            mHasResult = false;
+            return false;
+        }
+
+        final FrostMetrics metrics = FrostEngine.getInstance().getMetrics();
+        final long start = System.nanoTime();
+        capture(mBlurredView, mBitmapToBlur, mBlurringCanvas);
+        metrics.record(FrostMetrics.Stage.CAPTURE, System.nanoTime() - start);
+
+        // The previous result is still valid when the source has not changed since the last frame.
+        if (mChangeDetector.hasChanged(mBitmapToBlur)) {
+            if (mScrollAware && mChangeDetector.getShift() != 0) {
+                ((JavaFrostBackend) getEffectiveBackend()).frostShifted(mBitmapToBlur, mBlurredBitmap,
+                        mChangeDetector.getShift(), mBlurPlan.getRadius(), mOverlayColor);
+            } else {
+                blur();
+            }
+
+            // Only frames that were actually blurred tell how expensive the current quality is.
+            if (mQualityController != null && mQualityController.onFrameMeasured(System.nanoTime() - start)) {
+                mBlurPlanChanged = true;
+            }
+        } else {
+            metrics.recordSkippedFrame();
+        }
+
+        mHasResult = true;
+        mRendered = true;
+        return true;
+    }
+
+    /**
+     * Draws the latest frosted result on the given canvas of the glass view. The overlay color is blended into the
+     * result by the blur itself, except for shared sources, and drawn over the parts of the glass the result does not
+     * cover. Unless the glass view is live, the blurred view is rendered again first.
+     *
+     * @param canvas The canvas of the glass view.
+     */
+    void draw(Canvas canvas) {
+        if (mSource == null && mBlurredView == null) {
+            return;
+        }
+
+        final boolean platformFrost = usesPlatformFrost();
+        if (platformFrost && canvas.isHardwareAccelerated()) {
+            mSoftwareDraw = false;
+            if (drawPlatformFrost(canvas)) {
+                return;
+            }
+        }
+
+        // The platform blur only draws on hardware canvases, and live frames skip the bitmaps while it is used.
+        // Software canvases, like the ones the glass is captured with, are rendered through bitmaps like a glass
+        // without the platform blur, until the glass is drawn on a hardware canvas again. Bitmaps rendered before
+        // then are out of date.
+        if (platformFrost && !canvas.isHardwareAccelerated() && !mSoftwareDraw) {
+            mSoftwareDraw = true;
+            mHasResult = false;
+        }
+
+        if (!mLive || !mHasResult) {
+            render();
+        }
+
+        if (mHasResult) {
+            if (mSource != null) {
+                mSource.draw(canvas, mGlass);
+            } else {
+                final FrostMetrics metrics = FrostEngine.getInstance().getMetrics();
+                final long start = System.nanoTime();
+
+                final float left = mBlurredView.getX() - mGlass.getX() + mRegion.left;
+                final float top = mBlurredView.getY() - mGlass.getY() + mRegion.top;
+
+                canvas.save();
+                canvas.translate(left, top);
+                canvas.scale(mScaleFactor, mScaleFactor);
+                canvas.drawBitmap(mBlurredBitmap, 0, 0, null);
+                canvas.restore();
+
+                drawUncoveredOverlay(canvas, left, top, left + mBlurredBitmap.getWidth() * mScaleFactor,
+                        top + mBlurredBitmap.getHeight() * mScaleFactor);
+                metrics.record(FrostMetrics.Stage.DRAW, System.nanoTime() - start);
+
+                if (mRendered) {
+                    mRendered = false;
+                    metrics.frameCompleted();
+                }
+            }
+        }
+
+        // Every glass of a shared source has its own overlay, so it cannot be part of the shared result.
+        if (mSource != null || !mHasResult) {
+            canvas.drawColor(mOverlayColor);
+        }
+    }
+
+    /**
+     * Draws the overlay color over the parts of the glass outside the given bounds of the frosted result, like the
+     * parts of the glass beyond the edges of the blurred view, which the captured region does not cover.
+     */
+    private void drawUncoveredOverlay(Canvas canvas, float left, float top, float right, float bottom) {
+        final int width = mGlass.getWidth();
+        final int height = mGlass.getHeight();
+        if (left <= 0 && top <= 0 && right >= width && bottom >= height) {
+            return;
+        }
+
+        mOverlayPaint.setColor(mOverlayColor);
+        final float coveredTop = Math.max(0, top);
+        final float coveredBottom = Math.min(height, bottom);
+
+        if (top > 0) {
+            canvas.drawRect(0, 0, width, top, mOverlayPaint);
+        }
+        if (bottom < height) {
+            canvas.drawRect(0, bottom, width, height, mOverlayPaint);
+        }
+        if (coveredBottom > coveredTop) {
+            if (left > 0) {
+                canvas.drawRect(0, coveredTop, left, coveredBottom, mOverlayPaint);
+            }
+            if (right < width) {
+                canvas.drawRect(right, coveredTop, width, coveredBottom, mOverlayPaint);
+            }
+        }
+    }
+
+    /**
+     * Draws the glass with the platform blur, followed by the overlay color.
+     *
+     * @return False if the platform blur is not available, in which case the bitmap path is used from then on.
+     */
+    private boolean drawPlatformFrost(Canvas canvas) {
+        if (mPlatformFrost == null) {
+            mPlatformFrost = RenderEffectFrost.create();
+        }
+
+        final FrostMetrics metrics = FrostEngine.getInstance().getMetrics();
+        final long start = System.nanoTime();
+
+        // The radius is given in pixels of the downsampled content, so it is scaled to keep the same size on screen.
+        // The platform blur reaches about twice as far as its radius.
+        final int radius = mBlurRadius * mDownsampleFactor;
+        mPlatformRegion.set((int) (mGlass.getX() - mBlurredView.getX()), (int) (mGlass.getY() - mBlurredView.getY()),
+                mGlass.getWidth(), mGlass.getHeight(), 2 * radius, mBlurredView.getWidth(), mBlurredView.getHeight(),
+                1);
+
+        if (mPlatformFrost == null || !mPlatformFrost.draw(canvas, mBlurredView, mGlass, mPlatformRegion, radius)) {
+            setPlatformFrostEnabled(false);
+            return false;
+        }
+
+        canvas.drawColor(mOverlayColor);
+        metrics.record(FrostMetrics.Stage.DRAW, System.nanoTime() - start);
+        metrics.frameCompleted();
+        return true;
+    }
+
+    /**
+     * Makes sure the capture buffers and canvas match the current blur plan and the region of the blurred view
+     * beneath the glass view. Only that region, grown by the reach of the blur, is captured and blurred.
+     *
+     * @return True if the renderer is ready to capture.
+     */
+    boolean prepare() {
+        if (mBlurredView == null) {
+            return false;
+        }
+
+        if (mBlurPlanChanged) {
+            mBlurPlanChanged = false;
+
+            if (mQualityController != null) {
+                mBlurPlan = FrostEngine.planBlur(mQualityController.scaleRadius(mBlurRadius, mDownsampleFactor),
+                        mQualityController.getDownsampleFactor(), getEffectiveBackend());
+            } else {
+                mBlurPlan = FrostEngine.planBlur(mBlurRadius, mDownsampleFactor, getEffectiveBackend());
+            }
+            mChangeDetector.reset();
+            mScaleFactor = (int) mBlurPlan.getDownsampleFactor();
+        }
+
+        mRegion.set((int) (mGlass.getX() - mBlurredView.getX()), (int) (mGlass.getY() - mBlurredView.getY()),
+                mGlass.getWidth(), mGlass.getHeight(), mBlurPlan.getRadius() * mScaleFactor,
+                mBlurredView.getWidth(), mBlurredView.getHeight(), mScaleFactor);
+
+        int scaledWidth = (mRegion.width + mScaleFactor - 1) / mScaleFactor;
+        int scaledHeight = (mRegion.height + mScaleFactor - 1) / mScaleFactor;
+
+        if (scaledWidth <= 0 || scaledHeight <= 0) {
+            return false;
+        }
+
+        // The following manipulation is to avoid some RenderScript artifacts at the edge.
+        if (mEdgePaddingEnabled) {
+            scaledWidth = scaledWidth - scaledWidth % 4 + 4;
+            scaledHeight = scaledHeight - scaledHeight % 4 + 4;
+        }
+
+        // The capture and the blurred result are kept in separate buffers, so that the previous result can be
+        // drawn again when the captured content has not changed.
+        if (mBitmapToBlur == null || mBlurredBitmap == null
+                || mBitmapToBlur.getConfig() != mBitmapConfig
+                || mBitmapToBlur.getWidth() != scaledWidth
+                || mBitmapToBlur.getHeight() != scaledHeight) {
+            final FrostBitmapPool pool = FrostEngine.getInstance().getBitmapPool();
+            pool.release(mBitmapToBlur);
+            pool.release(mBlurredBitmap);
+            mBlurredBitmap = null;
+            mChangeDetector.reset();
+
+            mBitmapToBlur = pool.acquire(scaledWidth, scaledHeight, mBitmapConfig);
+            mBlurredBitmap = pool.acquire(scaledWidth, scaledHeight, mBitmapConfig);
+
+            // The canvas is kept across size changes, only its target is updated.
+            if (mBlurringCanvas == null) {
+                mBlurringCanvas = new Canvas();
+            }
+            mBlurringCanvas.setBitmap(mBitmapToBlur);
+        }
+
+        // The region follows the glass, so the capture transform is set again on every frame.
+        mBlurringCanvas.setMatrix(null);
+        mBlurringCanvas.scale(1f / mScaleFactor, 1f / mScaleFactor);
+        mBlurringCanvas.translate(-mRegion.left, -mRegion.top);
+        return true;
+    }
+
+    /**
+     * Maps a value of the {@code frostBackend} attribute to its backend.
+     *
+     * @param value The value of the attribute, as declared in the enum of the attribute.
+     * @return The backend named by the value.
+     */
+    static FrostEngine.Backend backendForAttribute(int value) {
+        switch (value) {
+            case 0:
+                return FrostEngine.Backend.RENDERSCRIPT;
+            case 1:
+                return FrostEngine.Backend.JAVA;
+            case 2:
+                return FrostEngine.Backend.KAWASE;
+            default:
+                throw new IllegalArgumentException("Unknown frostBackend attribute value: " + value);
+        }
+    }
+
+    /**
+     * Draws the given view into a capture bitmap, through a canvas already set up with the capture transform.
+     *
+     * @param blurredView The view to capture.
+     * @param bitmap      The bitmap the canvas draws into.
+     * @param canvas      The canvas to draw the view with.
+     */
+    static void capture(View blurredView, Bitmap bitmap, Canvas canvas) {
+        // If the background of the blurred view is a color drawable, we use it to clear
+        // the blurring canvas, which ensures that edges of the child views are blurred
+        // as well; otherwise we clear the blurring canvas with a transparent color.
+        if (blurredView.getBackground() != null && blurredView.getBackground() instanceof ColorDrawable) {
+            bitmap.eraseColor(((ColorDrawable) blurredView.getBackground()).getColor());
+        } else {
+            bitmap.eraseColor(Color.TRANSPARENT);
+        }
+
+        blurredView.draw(canvas);
+    }
+
+    void blur() {
+        FrostEngine.getInstance().frost(mBitmapToBlur, mBlurredBitmap, mBlurPlan.getRadius(), mOverlayColor,
+                getEffectiveBackend());
+    }
+
+    /**
+     * @return The number of frames whose blur was skipped because the source content had not changed.
+     */
+    int getSkippedFrameCount() {
+        if (mSource != null) {
+            return mSource.getSkippedFrameCount();
+        }
+
+        return mChangeDetector.getSkippedFrameCount();
+    }
+}
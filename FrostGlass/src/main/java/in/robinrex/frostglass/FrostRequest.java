@@ -0,0 +1,135 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An asynchronous frost of a captured bitmap, run on the executor of the {@link FrostEngine}. The result is delivered
+ * to a {@link FrostCallback} on the main thread, and is also available through the {@link java.util.concurrent.Future}
+ * interface.
+ * <p/>
+ * The captured bitmap is given back to the pool if the request is cancelled, whether before or while it runs. A request
+ * superseded by a newer one of the same view no longer calls its callback.
+ *
+ * @author Robin Rex G.
+ */
+class FrostRequest extends FutureTask<Bitmap> {
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private final FrostEngine mEngine;
+
+    private final Blur mBlur;
+
+    private final FrostCallback mCallback;
+
+    private volatile boolean mSuperseded;
+
+    /**
+     * Blurs the capture in place, unless the request was cancelled before the blur could start.
+     */
+    private static class Blur implements Callable<Bitmap> {
+
+        final Bitmap bitmap;
+
+        final int radius;
+
+        final FrostBackend backend;
+
+        /**
+         * Claimed by whichever comes first: the blur starting, or a cancellation before it started. The winner owns
+         * the captured bitmap.
+         */
+        final AtomicBoolean claimed = new AtomicBoolean();
+
+        volatile boolean started;
+
+        Blur(Bitmap bitmap, int radius, FrostBackend backend) {
+            this.bitmap = bitmap;
+            this.radius = radius;
+            this.backend = backend;
+        }
+
+        @Override
+        public Bitmap call() throws Exception {
+            if (!claimed.compareAndSet(false, true)) {
+                return null;
+            }
+
+            started = true;
+            return backend.frost(bitmap, bitmap, radius);
+        }
+    }
+
+    FrostRequest(FrostEngine engine, Bitmap bitmap, int radius, FrostBackend backend, FrostCallback callback) {
+        this(engine, new Blur(bitmap, radius, backend), callback);
+    }
+
+    private FrostRequest(FrostEngine engine, Blur blur, FrostCallback callback) {
+        super(blur);
+        mEngine = engine;
+        mBlur = blur;
+        mCallback = callback;
+    }
+
+    /**
+     * Cancels the request in favour of a newer one. If the blur is already done, its result is given back to the pool
+     * instead of being delivered.
+     */
+    void supersede() {
+        mSuperseded = true;
+        cancel(false);
+    }
+
+    @Override
+    public void run() {
+        super.run();
+
+        // Delivered once the blur has returned, even if cancelled while it ran, so that the bitmap is only given back
+        // to the pool once nothing writes to it any more.
+        if (mBlur.started) {
+            sMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    deliver();
+                }
+            });
+        }
+    }
+
+    @Override
+    protected void done() {
+        // Cancelled before the blur started, so nothing else is going to release the capture.
+        if (isCancelled() && mBlur.claimed.compareAndSet(false, true)) {
+            mEngine.releaseBitmap(mBlur.bitmap);
+        }
+    }
+
+    private void deliver() {
+        if (isCancelled()) {
+            mEngine.releaseBitmap(mBlur.bitmap);
+            return;
+        }
+
+        if (mSuperseded) {
+            mEngine.releaseBitmap(mBlur.bitmap);
+            return;
+        }
+
+        try {
+            final Bitmap frosted = get();
+            if (mCallback != null) {
+                mCallback.onFrosted(frosted);
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            Logger.error("Asynchronous frost failed: " + e);
+            mEngine.releaseBitmap(mBlur.bitmap);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package in.robinrex.frostglass;
+
+import android.view.Choreographer;
+
+/**
+ * Runs the frame callbacks of every frosted view of the library in a single {@link Choreographer} callback. Glass views
+ * post themselves here instead of to the Choreographer, so that their captures run in a deterministic order, and the
+ * frost work of a frame can be bounded with {@link #setFrameBudget(long)}. Lower priority callbacks that do not fit in
+ * the budget of a frame are deferred to the next one.
+ * <p/>
+ * Every method has to be called on the UI thread.
+ *
+ * @author Robin Rex G.
+ */
+public class FrostScheduler implements Choreographer.FrameCallback {
+
+    public static final int PRIORITY_DEFAULT = 0;
+
+    /**
+     * The default time the frost work of a frame may take, in nanoseconds.
+     */
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 8000000;
+
+    private static FrostScheduler sInstance;
+
+    private final FrostFrameQueue<Choreographer.FrameCallback> mQueue =
+            new FrostFrameQueue<Choreographer.FrameCallback>(DEFAULT_FRAME_BUDGET_NANOS) {
+                @Override
+                void dispatch(Choreographer.FrameCallback callback, long frameTimeNanos) {
+                    callback.doFrame(frameTimeNanos);
+                }
+            };
+
+    private boolean mScheduled;
+
+    private FrostScheduler() {
+    }
+
+    public static FrostScheduler getInstance() {
+        if (sInstance == null) {
+            sInstance = new FrostScheduler();
+        }
+
+        return sInstance;
+    }
+
+    /**
+     * Posts a callback to run once on the next frame, with the default priority.
+     *
+     * @param callback The callback.
+     */
+    public void postFrameCallback(Choreographer.FrameCallback callback) {
+        postFrameCallback(callback, PRIORITY_DEFAULT);
+    }
+
+    /**
+     * Posts a callback to run once on the next frame.
+     *
+     * @param callback The callback.
+     * @param priority The priority of the callback. Higher priorities run first, and are the last to be deferred when
+     *                 the frame budget runs out.
+     */
+    public void postFrameCallback(Choreographer.FrameCallback callback, int priority) {
+        mQueue.post(callback, priority);
+
+        if (!mScheduled) {
+            mScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Removes a posted callback.
+     *
+     * @param callback The callback.
+     */
+    public void removeFrameCallback(Choreographer.FrameCallback callback) {
+        mQueue.remove(callback);
+    }
+
+    /**
+     * Sets the time the callbacks of a frame may take together. At least one callback runs every frame, even if it
+     * alone takes longer.
+     *
+     * @param budgetNanos The budget, in nanoseconds.
+     */
+    public void setFrameBudget(long budgetNanos) {
+        mQueue.setBudgetNanos(budgetNanos);
+    }
+
+    public long getFrameBudgetNanos() {
+        return mQueue.getBudgetNanos();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mScheduled = false;
+        mQueue.run(frameTimeNanos);
+
+        if (!mQueue.isEmpty() && !mScheduled) {
+            mScheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
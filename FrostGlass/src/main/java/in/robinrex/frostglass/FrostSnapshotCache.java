@@ -0,0 +1,169 @@
+package in.robinrex.frostglass;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.os.AsyncTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Keeps the last frosted frame of every activity in a small file of the cache directory, so that a recreated activity
+ * can show its frost on the very first frame, while a fresh frost is being computed.
+ * <p/>
+ * A snapshot is the raw memory of the downsampled frosted bitmap behind a short header. Files are read and written
+ * through memory mapped channels, and the pixels are copied straight between the mapped file and the bitmap. Snapshots
+ * are keyed by activity class and content size, and a snapshot whose size or config does not match the capture it
+ * stands in for is ignored.
+ *
+ * @author Robin Rex G.
+ */
+class FrostSnapshotCache {
+
+    private static final String DIRECTORY_NAME = "frost_snapshots";
+
+    private static final int MAGIC = 0x46524F53;
+
+    private static final int VERSION = 1;
+
+    /**
+     * Magic, version, width, height, config and byte count, one int each.
+     */
+    private static final int HEADER_SIZE = 6 * 4;
+
+    private final File mDirectory;
+
+    FrostSnapshotCache(File cacheDir) {
+        mDirectory = new File(cacheDir, DIRECTORY_NAME);
+    }
+
+    /**
+     * @param activity The frosted activity.
+     * @param width    The width of the content view of the activity.
+     * @param height   The height of the content view of the activity.
+     * @return The key of the snapshots of the activity at the given size.
+     */
+    static String keyFor(Activity activity, int width, int height) {
+        return activity.getClass().getName() + "-" + width + "x" + height;
+    }
+
+    /**
+     * Reads the snapshot stored under the given key into a bitmap of the pool.
+     *
+     * @param key    The key of the snapshot.
+     * @param width  The width the snapshot must have.
+     * @param height The height the snapshot must have.
+     * @param config The config the snapshot must have.
+     * @param pool   The pool the bitmap is acquired from.
+     * @return The snapshot, or null if there is no matching snapshot.
+     */
+    Bitmap load(String key, int width, int height, Bitmap.Config config, FrostBitmapPool pool) {
+        final File file = new File(mDirectory, key);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        RandomAccessFile input = null;
+        try {
+            input = new RandomAccessFile(file, "r");
+            final FileChannel channel = input.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != width
+                    || buffer.getInt() != height || buffer.getInt() != config.ordinal()) {
+                return null;
+            }
+
+            final int byteCount = buffer.getInt();
+            if (byteCount != buffer.remaining()) {
+                return null;
+            }
+
+            final Bitmap bitmap = pool.acquire(width, height, config);
+            if (bitmap.getByteCount() != byteCount) {
+                pool.release(bitmap);
+                return null;
+            }
+
+            bitmap.copyPixelsFromBuffer(buffer);
+            return bitmap;
+        } catch (IOException e) {
+            Logger.error("Could not read frost snapshot " + key + ": " + e);
+            return null;
+        } finally {
+            close(input);
+        }
+    }
+
+    /**
+     * Stores the given bitmap under the given key. The pixels are copied on the calling thread, so the bitmap can be
+     * reused right away, and written to the file on a background thread.
+     *
+     * @param key    The key of the snapshot.
+     * @param bitmap The frosted bitmap.
+     */
+    void save(final String key, Bitmap bitmap) {
+        final ByteBuffer pixels = ByteBuffer.allocate(bitmap.getByteCount());
+        bitmap.copyPixelsToBuffer(pixels);
+        pixels.flip();
+
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        final int config = bitmap.getConfig().ordinal();
+
+        // Snapshots are written in order, so the last one saved for a key is the one that remains.
+        AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(key, width, height, config, pixels);
+            }
+        });
+    }
+
+    private void write(String key, int width, int height, int config, ByteBuffer pixels) {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Logger.error("Could not create " + mDirectory);
+            return;
+        }
+
+        // Written next to the snapshot and renamed over it, so that a process killed while writing leaves no partial
+        // snapshot behind.
+        final File temporary = new File(mDirectory, key + ".tmp");
+
+        RandomAccessFile output = null;
+        try {
+            output = new RandomAccessFile(temporary, "rw");
+            final MappedByteBuffer buffer = output.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + pixels.remaining());
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(config)
+                    .putInt(pixels.remaining());
+            buffer.put(pixels);
+        } catch (IOException e) {
+            Logger.error("Could not write frost snapshot " + key + ": " + e);
+            return;
+        } finally {
+            close(output);
+        }
+
+        if (!temporary.renameTo(new File(mDirectory, key))) {
+            Logger.error("Could not store frost snapshot " + key);
+        }
+    }
+
+    private static void close(RandomAccessFile file) {
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                //Nothing left to do.
+            }
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.support.annotation.IntRange;
+import android.view.Choreographer;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A view frosted by several glass views at once. The source captures and blurs the view at most once per frame, at
+ * the smallest region covering every attached glass, and every glass draws its own part of that single result.
+ * <p/>
+ * Use {@link #of(View)} to get the source of a view, and pass it to {@link FGView#frostWith(FrostSource)} or
+ * {@link FGLayout#frostWith(FrostSource)}. Since the glass views share one blurred result, the blur radius, quality
+ * and backend are set on the source. The overlay color is still set on every glass.
+ * <p/>
+ * Every method has to be called on the UI thread.
+ *
+ * @author Robin Rex G.
+ */
+public class FrostSource {
+
+    private final View mView;
+
+    private final List<View> mGlasses = new ArrayList<>();
+
+    private FrostBackend mFrostBackend;
+
+    private int mBlurRadius = FrostGlass.DEFAULT_BLUR_RADIUS;
+
+    private int mDownsampleFactor = FrostGlass.DEFAULT_DOWNSAMPLE_FACTOR;
+
+    private BlurPlan mBlurPlan;
+
+    private int mScaleFactor;
+
+    private final FrostRegion mRegion = new FrostRegion();
+
+    private Bitmap.Config mBitmapConfig = Bitmap.Config.ARGB_8888;
+
+    private Bitmap mBitmapToBlur, mBlurredBitmap;
+
+    private Canvas mBlurringCanvas;
+
+    private final FrostChangeDetector mChangeDetector = new FrostChangeDetector();
+
+    private final Rect mSourceRect = new Rect();
+
+    private final RectF mGlassRect = new RectF();
+
+    /**
+     * Set at every vsync after a render, so that the first glass drawn in a frame renders the source again and the
+     * others reuse its result.
+     */
+    private boolean mDirty = true;
+
+    private final Choreographer.FrameCallback mVsyncCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mDirty = true;
+        }
+    };
+
+    private FrostSource(View view) {
+        mView = view;
+        mFrostBackend = FrostEngine.getInstance().getDefaultBackend();
+    }
+
+    /**
+     * Returns the source of the given view, creating it the first time. Every call for the same view returns the same
+     * source, which is stored as a tag of the view.
+     *
+     * @param view The view to frost.
+     * @return The shared source of the view.
+     */
+    public static FrostSource of(View view) {
+        FrostSource source = (FrostSource) view.getTag(R.id.frost_source_tag);
+        if (source == null) {
+            FrostEngine.init(view.getContext());
+            source = new FrostSource(view);
+            view.setTag(R.id.frost_source_tag, source);
+        }
+
+        return source;
+    }
+
+    /**
+     * @return The view this source frosts.
+     */
+    public View getView() {
+        return mView;
+    }
+
+    /**
+     * Sets the blur radius shared by every glass view of this source.
+     *
+     * @param radius The blur radius, in pixels of the downsampled content.
+     */
+    public void setBlurRadius(int radius) {
+        mBlurRadius = radius;
+        invalidatePlan();
+    }
+
+    public void setDownsampleFactor(@IntRange(from = 1, to = 100) int factor) {
+        if (factor <= 0) {
+            throw new IllegalArgumentException("Downsample factor must be in the range 1-100." + factor);
+        }
+
+        mDownsampleFactor = factor;
+        invalidatePlan();
+    }
+
+    /**
+     * Sets the backend used to blur the source. Defaults to {@link FrostEngine#getDefaultBackend()}.
+     *
+     * @param backend The backend, usually obtained from {@link FrostEngine#getBackend(FrostEngine.Backend)}.
+     */
+    public void setFrostBackend(FrostBackend backend) {
+        mFrostBackend = backend;
+        invalidatePlan();
+    }
+
+    /**
+     * Enables or disables capturing and blurring the source in {@link Bitmap.Config#RGB_565}, which halves the memory
+     * and the copy traffic of the blur. Only meant for opaque source views.
+     *
+     * @param opaque True to capture in RGB_565.
+     */
+    public void setOpaqueFrost(boolean opaque) {
+        mBitmapConfig = opaque ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        mDirty = true;
+    }
+
+    private void invalidatePlan() {
+        mBlurPlan = null;
+        mDirty = true;
+        mChangeDetector.reset();
+    }
+
+    void attach(View glass) {
+        if (!mGlasses.contains(glass)) {
+            mGlasses.add(glass);
+            mDirty = true;
+        }
+    }
+
+    void detach(View glass) {
+        mGlasses.remove(glass);
+
+        if (mGlasses.isEmpty()) {
+            FrostScheduler.getInstance().removeFrameCallback(mVsyncCallback);
+
+            final FrostBitmapPool pool = FrostEngine.getInstance().getBitmapPool();
+            pool.release(mBitmapToBlur);
+            pool.release(mBlurredBitmap);
+            mBitmapToBlur = null;
+            mBlurredBitmap = null;
+            mChangeDetector.reset();
+            mDirty = true;
+        }
+    }
+
+    /**
+     * Captures and blurs the source, unless that has already been done during the current frame.
+     *
+     * @return True if a blurred result is available to draw.
+     */
+    boolean update() {
+        if (!mDirty) {
+            return mBlurredBitmap != null;
+        }
+
+        if (!prepare()) {
+            return false;
+        }
+
+        mDirty = false;
+
+        // Posted with the highest priority, so that the flag is set before any glass view renders in the next frame.
+        FrostScheduler.getInstance().postFrameCallback(mVsyncCallback, Integer.MAX_VALUE);
+
+        final FrostMetrics metrics = FrostEngine.getInstance().getMetrics();
+        final long start = System.nanoTime();
+
+        FrostRenderer.capture(mView, mBitmapToBlur, mBlurringCanvas);
+        metrics.record(FrostMetrics.Stage.CAPTURE, System.nanoTime() - start);
+
+        if (mChangeDetector.hasChanged(mBitmapToBlur)) {
+            FrostEngine.getInstance().frost(mBitmapToBlur, mBlurredBitmap, mBlurPlan.getRadius(), mFrostBackend);
+        } else {
+            metrics.recordSkippedFrame();
+        }
+
+        metrics.frameCompleted();
+        return true;
+    }
+
+    /**
+     * Sizes the buffers for the region covering every attached glass view.
+     */
+    private boolean prepare() {
+        if (mGlasses.isEmpty()) {
+            return false;
+        }
+
+        if (mBlurPlan == null) {
+            mBlurPlan = FrostEngine.planBlur(mBlurRadius, mDownsampleFactor, mFrostBackend);
+            mScaleFactor = (int) mBlurPlan.getDownsampleFactor();
+        }
+
+        int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE;
+        int right = Integer.MIN_VALUE, bottom = Integer.MIN_VALUE;
+
+        for (int i = 0; i < mGlasses.size(); i++) {
+            final View glass = mGlasses.get(i);
+            final int glassLeft = (int) (glass.getX() - mView.getX());
+            final int glassTop = (int) (glass.getY() - mView.getY());
+
+            left = Math.min(left, glassLeft);
+            top = Math.min(top, glassTop);
+            right = Math.max(right, glassLeft + glass.getWidth());
+            bottom = Math.max(bottom, glassTop + glass.getHeight());
+        }
+
+        mRegion.set(left, top, right - left, bottom - top, mBlurPlan.getRadius() * mScaleFactor,
+                mView.getWidth(), mView.getHeight(), mScaleFactor);
+
+        final int scaledWidth = (mRegion.width + mScaleFactor - 1) / mScaleFactor;
+        final int scaledHeight = (mRegion.height + mScaleFactor - 1) / mScaleFactor;
+
+        if (scaledWidth <= 0 || scaledHeight <= 0) {
+            return false;
+        }
+
+        if (mBitmapToBlur == null || mBlurredBitmap == null
+                || mBitmapToBlur.getConfig() != mBitmapConfig
+                || mBitmapToBlur.getWidth() != scaledWidth
+                || mBitmapToBlur.getHeight() != scaledHeight) {
+            final FrostBitmapPool pool = FrostEngine.getInstance().getBitmapPool();
+            pool.release(mBitmapToBlur);
+            pool.release(mBlurredBitmap);
+            mBlurredBitmap = null;
+            mChangeDetector.reset();
+
+            mBitmapToBlur = pool.acquire(scaledWidth, scaledHeight, mBitmapConfig);
+            if (mBitmapToBlur == null) {
+                return false;
+            }
+
+            mBlurredBitmap = pool.acquire(scaledWidth, scaledHeight, mBitmapConfig);
+            if (mBlurredBitmap == null) {
+                return false;
+            }
+
+            if (mBlurringCanvas == null) {
+                mBlurringCanvas = new Canvas();
+            }
+            mBlurringCanvas.setBitmap(mBitmapToBlur);
+        }
+
+        mBlurringCanvas.setMatrix(null);
+        mBlurringCanvas.scale(1f / mScaleFactor, 1f / mScaleFactor);
+        mBlurringCanvas.translate(-mRegion.left, -mRegion.top);
+        return true;
+    }
+
+    /**
+     * Draws the part of the blurred result beneath the given glass view. {@link #update()} must have returned true
+     * during the current frame.
+     *
+     * @param canvas The canvas of the glass view.
+     * @param glass  The glass view being drawn.
+     */
+    void draw(Canvas canvas, View glass) {
+        final long start = System.nanoTime();
+
+        // The bounds of the glass, relative to the captured region.
+        final float glassLeft = glass.getX() - mView.getX() - mRegion.left;
+        final float glassTop = glass.getY() - mView.getY() - mRegion.top;
+
+        mSourceRect.left = Math.max(0, (int) Math.floor(glassLeft / mScaleFactor));
+        mSourceRect.top = Math.max(0, (int) Math.floor(glassTop / mScaleFactor));
+        mSourceRect.right = Math.min(mBlurredBitmap.getWidth(),
+                (int) Math.ceil((glassLeft + glass.getWidth()) / mScaleFactor));
+        mSourceRect.bottom = Math.min(mBlurredBitmap.getHeight(),
+                (int) Math.ceil((glassTop + glass.getHeight()) / mScaleFactor));
+
+        if (mSourceRect.right <= mSourceRect.left || mSourceRect.bottom <= mSourceRect.top) {
+            return;
+        }
+
+        mGlassRect.set(mSourceRect.left * mScaleFactor - glassLeft, mSourceRect.top * mScaleFactor - glassTop,
+                mSourceRect.right * mScaleFactor - glassLeft, mSourceRect.bottom * mScaleFactor - glassTop);
+
+        canvas.drawBitmap(mBlurredBitmap, mSourceRect, mGlassRect, null);
+        FrostEngine.getInstance().getMetrics().record(FrostMetrics.Stage.DRAW, System.nanoTime() - start);
+    }
+
+    /**
+     * @return The number of frames whose blur was skipped because the source content had not changed.
+     */
+    int getSkippedFrameCount() {
+        return mChangeDetector.getSkippedFrameCount();
+    }
+}
@@ -0,0 +1,90 @@
+package in.robinrex.frostglass;
+
+/**
+ * Splits an image into a grid of tiles that can be captured and blurred one at a time, so that frosting a very large
+ * view only ever needs buffers the size of a tile.
+ * <p/>
+ * Every tile is captured with a halo as wide as the blur around it, so that the stitched tiles show no seams. Like a
+ * {@link FrostRegion}, the captured area keeps the same size for every tile, and is shifted rather than shrunk along
+ * the edges of the image.
+ *
+ * @author Robin Rex G.
+ */
+class FrostTiling {
+
+    /**
+     * The bounds of one tile, and of the area captured around it. Every value is in pixels of the image.
+     */
+    static final class Tile {
+
+        int left, top, width, height;
+
+        int captureLeft, captureTop;
+    }
+
+    final int width, height;
+
+    final int tileSize;
+
+    final int halo;
+
+    /**
+     * The size of the area captured for every tile.
+     */
+    final int captureWidth, captureHeight;
+
+    final int columns, rows;
+
+    /**
+     * @param width    The width of the image.
+     * @param height   The height of the image.
+     * @param tileSize The width and height of the tiles. The tiles of the last column and row may be smaller.
+     * @param halo     The distance the blur reaches, by which the captured area of every tile is grown on every side.
+     */
+    FrostTiling(int width, int height, int tileSize, int halo) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("Tile size must be at least 1. " + tileSize);
+        }
+
+        if (halo < 0) {
+            throw new IllegalArgumentException("Halo cannot be negative. " + halo);
+        }
+
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.halo = halo;
+
+        captureWidth = Math.min(tileSize + 2 * halo, width);
+        captureHeight = Math.min(tileSize + 2 * halo, height);
+        columns = (width + tileSize - 1) / tileSize;
+        rows = (height + tileSize - 1) / tileSize;
+    }
+
+    int getTileCount() {
+        return columns * rows;
+    }
+
+    /**
+     * Computes the bounds of a tile. Tiles are numbered row by row.
+     *
+     * @param index The index of the tile, between 0 and {@link #getTileCount()}.
+     * @param tile  Receives the bounds of the tile.
+     */
+    void getTile(int index, Tile tile) {
+        if (index < 0 || index >= getTileCount()) {
+            throw new IllegalArgumentException("No tile " + index + " in a grid of " + getTileCount() + ".");
+        }
+
+        tile.left = index % columns * tileSize;
+        tile.top = index / columns * tileSize;
+        tile.width = Math.min(tileSize, width - tile.left);
+        tile.height = Math.min(tileSize, height - tile.top);
+        tile.captureLeft = clamp(tile.left - halo, width - captureWidth);
+        tile.captureTop = clamp(tile.top - halo, height - captureHeight);
+    }
+
+    private static int clamp(int start, int maxStart) {
+        return Math.max(0, Math.min(start, maxStart));
+    }
+}
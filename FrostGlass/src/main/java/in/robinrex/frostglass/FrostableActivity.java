@@ -29,6 +29,11 @@ public class FrostableActivity extends AppCompatActivity {
             mFrostGlass.staticFrost(blurRadius);
     }
 
+    public void staticFrostAsync(int blurRadius) {
+        if(mFrostGlass != null)
+            mFrostGlass.staticFrostAsync(blurRadius);
+    }
+
     public void liveFrost(int blurRadius) {
         if(mFrostGlass != null)
             mFrostGlass.liveFrost(blurRadius);
@@ -53,6 +58,9 @@ public class FrostableActivity extends AppCompatActivity {
 
         if(mFrostGlass.isLive())
             mFrostGlass.pauseFrost();
+
+        // Keeps the frame on screen, to be shown right away if the activity is recreated.
+        mFrostGlass.saveSnapshot();
     }
 
     @Override
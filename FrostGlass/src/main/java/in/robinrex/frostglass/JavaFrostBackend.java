@@ -0,0 +1,304 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.nio.ShortBuffer;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A {@link FrostBackend} that blurs bitmaps on the CPU with {@link StackBlur}, without any native dependency.
+ * <p/>
+ * RGB_565 bitmaps are blurred in their own pixel format: their memory is copied as is into a short array, instead of
+ * being converted to and from ARGB, which halves the memory and the copy traffic of the blur.
+ * <p/>
+ * The overlay color is blended by the last pass of the kernel, as it writes the blurred pixels.
+ * <p/>
+ * A batch of bitmaps is spread across the cores one whole bitmap at a time, with a single threaded kernel and its own
+ * buffers per core. Small bitmaps like thumbnails are too small for the bands of a single parallel blur to pay off.
+ *
+ * @author Robin Rex G.
+ */
+class JavaFrostBackend implements BatchFrostBackend {
+
+    private final FrostMetrics mMetrics;
+
+    private final int mProcessors = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The number of threads a single bitmap is blurred on.
+     */
+    private final int mParallelism;
+
+    private Kernel mKernel;
+
+    private FrostPixels mBlurredPixels;
+
+    /**
+     * Guards the batch kernels and threads, so that a batch does not hold up the frosting of glass views.
+     */
+    private final Object mBatchLock = new Object();
+
+    private Kernel[] mBatchKernels;
+
+    private ExecutorService mBatchExecutor;
+
+    /**
+     * A StackBlur with the buffers it blurs bitmaps in. The buffers grow to the largest bitmap blurred, and are reused
+     * for every bitmap of the same size or smaller.
+     */
+    private static final class Kernel {
+
+        final StackBlur stackBlur;
+
+        final FrostPixels pixels = new FrostPixels();
+
+        short[] pixels565;
+
+        ShortBuffer pixelBuffer565;
+
+        Kernel(int parallelism) {
+            stackBlur = new StackBlur(parallelism);
+        }
+
+        Bitmap frost(Bitmap input, Bitmap output, int radius, int overlayColor, FrostMetrics metrics) {
+            final int width = input.getWidth();
+            final int height = input.getHeight();
+
+            if (isPackedRgb565(input) && isPackedRgb565(output)) {
+                return frostRgb565(input, output, width, height, radius, overlayColor, metrics);
+            }
+
+            long start = System.nanoTime();
+            final int[] argb = pixels.read(input);
+            metrics.record(FrostMetrics.Stage.UPLOAD, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            stackBlur.blur(argb, width, height, radius, pixels.toPixelOrder(overlayColor));
+            metrics.record(FrostMetrics.Stage.BLUR, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            pixels.write(output);
+            metrics.record(FrostMetrics.Stage.COPY_BACK, System.nanoTime() - start);
+            return output;
+        }
+
+        private Bitmap frostRgb565(Bitmap input, Bitmap output, int width, int height, int radius, int overlayColor,
+                                   FrostMetrics metrics) {
+            if (pixels565 == null || pixels565.length < width * height) {
+                pixels565 = new short[width * height];
+                pixelBuffer565 = ShortBuffer.wrap(pixels565);
+            }
+
+            long start = System.nanoTime();
+            pixelBuffer565.clear();
+            input.copyPixelsToBuffer(pixelBuffer565);
+            metrics.record(FrostMetrics.Stage.UPLOAD, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            stackBlur.blurRgb565(pixels565, width, height, radius, overlayColor);
+            metrics.record(FrostMetrics.Stage.BLUR, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            pixelBuffer565.clear();
+            output.copyPixelsFromBuffer(pixelBuffer565);
+            metrics.record(FrostMetrics.Stage.COPY_BACK, System.nanoTime() - start);
+            return output;
+        }
+    }
+
+    JavaFrostBackend(FrostMetrics metrics) {
+        this(metrics, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param metrics     The metrics the stages of the blur are recorded in.
+     * @param parallelism The number of threads a single bitmap is blurred on. 1 blurs on the calling thread only.
+     */
+    JavaFrostBackend(FrostMetrics metrics, int parallelism) {
+        mMetrics = metrics;
+        mParallelism = parallelism;
+    }
+
+    @Override
+    public Bitmap frost(Bitmap input, Bitmap output, int radius) {
+        return frost(input, output, radius, Color.TRANSPARENT);
+    }
+
+    @Override
+    public synchronized Bitmap frost(Bitmap input, Bitmap output, int radius, int overlayColor) {
+        return obtainKernel().frost(input, output, radius, overlayColor, mMetrics);
+    }
+
+    /**
+     * Created on first use, and again after a release.
+     */
+    private Kernel obtainKernel() {
+        if (mKernel == null) {
+            mKernel = new Kernel(mParallelism);
+        }
+        return mKernel;
+    }
+
+    @Override
+    public void frostAll(final List<Bitmap> bitmaps, final int radius, final Listener listener) {
+        synchronized (mBatchLock) {
+            final int workerCount = Math.min(mProcessors, bitmaps.size());
+            if (workerCount == 0) {
+                return;
+            }
+
+            if (mBatchKernels == null) {
+                mBatchKernels = new Kernel[mProcessors];
+                if (mProcessors > 1) {
+                    mBatchExecutor = Executors.newFixedThreadPool(mProcessors - 1);
+                }
+            }
+
+            // Every worker takes the next bitmap that nobody has started yet, so uneven sizes even out.
+            final AtomicInteger next = new AtomicInteger();
+            final CountDownLatch done = new CountDownLatch(workerCount - 1);
+
+            for (int i = 0; i < workerCount; i++) {
+                if (mBatchKernels[i] == null) {
+                    mBatchKernels[i] = new Kernel(1);
+                }
+
+                final Kernel kernel = mBatchKernels[i];
+                final Runnable worker = new Runnable() {
+                    @Override
+                    public void run() {
+                        int index;
+                        while ((index = next.getAndIncrement()) < bitmaps.size()) {
+                            final Bitmap bitmap = bitmaps.get(index);
+                            kernel.frost(bitmap, bitmap, radius, Color.TRANSPARENT, mMetrics);
+
+                            if (!listener.onFrosted(index, bitmap)) {
+                                next.set(bitmaps.size());
+                            }
+                        }
+                    }
+                };
+
+                // The calling thread is the last worker.
+                if (i == workerCount - 1) {
+                    worker.run();
+                } else {
+                    mBatchExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                worker.run();
+                            } finally {
+                                done.countDown();
+                            }
+                        }
+                    });
+                }
+            }
+
+            // The workers own the bitmaps they have started on, so they are waited for even if interrupted. An
+            // interrupt only keeps them from starting on more bitmaps.
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    next.set(bitmaps.size());
+                }
+            }
+
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Frosts a frame of scrolling content by moving the previous frosted frame, and blurring again only the rows that
+     * differ, see {@link StackBlur#blurShifted(int[], int[], int, int, int, int, int)}. Falls back to a full frost when
+     * that is cheaper, or for bitmaps whose memory cannot be copied as is, see {@link FrostPixels}.
+     *
+     * @param input        The current frame, which is the previous frame moved by the shift.
+     * @param output       The frosted previous frame, which receives the frosted current frame.
+     * @param shift        The number of rows the content moved up, or down if negative.
+     * @param radius       The radius the previous frame was frosted with.
+     * @param overlayColor The overlay color the previous frame was frosted with.
+     * @return The output bitmap.
+     */
+    synchronized Bitmap frostShifted(Bitmap input, Bitmap output, int shift, int radius, int overlayColor) {
+        final Kernel kernel = obtainKernel();
+        final int width = input.getWidth();
+        final int height = input.getHeight();
+
+        // Both frames have to be in the same channel order.
+        if (!FrostPixels.isCopiedAsIs(input) || !FrostPixels.isCopiedAsIs(output)) {
+            return frost(input, output, radius, overlayColor);
+        }
+
+        if (mBlurredPixels == null) {
+            mBlurredPixels = new FrostPixels();
+        }
+
+        long start = System.nanoTime();
+        final int[] pixels = kernel.pixels.read(input);
+        final int[] blurred = mBlurredPixels.read(output);
+        mMetrics.record(FrostMetrics.Stage.UPLOAD, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        final int overlay = kernel.pixels.toPixelOrder(overlayColor);
+        if (!kernel.stackBlur.blurShifted(pixels, blurred, width, height, radius, shift, overlay)) {
+            kernel.stackBlur.blur(pixels, width, height, radius, overlay);
+            System.arraycopy(pixels, 0, blurred, 0, width * height);
+        }
+        mMetrics.record(FrostMetrics.Stage.BLUR, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        mBlurredPixels.write(output);
+        mMetrics.record(FrostMetrics.Stage.COPY_BACK, System.nanoTime() - start);
+        return output;
+    }
+
+    private static boolean isPackedRgb565(Bitmap bitmap) {
+        return bitmap.getConfig() == Bitmap.Config.RGB_565 && bitmap.getRowBytes() == bitmap.getWidth() * 2;
+    }
+
+    @Override
+    public int getMaxRadius() {
+        return StackBlur.MAX_RADIUS;
+    }
+
+    @Override
+    public void release() {
+        synchronized (this) {
+            mBlurredPixels = null;
+
+            if (mKernel != null) {
+                mKernel.stackBlur.shutdown();
+                mKernel = null;
+            }
+        }
+
+        synchronized (mBatchLock) {
+            if (mBatchKernels != null) {
+                for (Kernel kernel : mBatchKernels) {
+                    if (kernel != null) {
+                        kernel.stackBlur.shutdown();
+                    }
+                }
+                mBatchKernels = null;
+            }
+
+            if (mBatchExecutor != null) {
+                mBatchExecutor.shutdown();
+                mBatchExecutor = null;
+            }
+        }
+    }
+}
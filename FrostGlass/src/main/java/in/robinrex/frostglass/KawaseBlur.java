@@ -0,0 +1,313 @@
+package in.robinrex.frostglass;
+
+/**
+ * A pure Java implementation of the dual Kawase blur, working on packed ARGB pixel arrays. The image is halved a few
+ * times with a small filter, and doubled back to its size with another one. Every pass reads a fixed number of pixels,
+ * and every halving divides the work of the next passes by four. Blurring twice as wide only takes one more halving
+ * and doubling, on an image a quarter of the size, so large radii cost about as much as small ones.
+ * <p/>
+ * The filters are the ones of the dual filter blur, with their taps placed on whole and half pixels so that they
+ * become integer kernels over a 4x4 neighbourhood:
+ * <ul>
+ * <li>Halving samples the 2x2 block under the output pixel four times, and the four blocks diagonally around it
+ * once.</li>
+ * <li>Doubling samples the four pixels one pixel away along the axes once, and the four half a pixel away along the
+ * diagonals twice.</li>
+ * </ul>
+ * The strength of the blur only grows in steps, with the number of halvings. The radius is rounded to the closest
+ * step, see {@link #getIterations(int)}.
+ * <p/>
+ * This class does not depend on the Android framework, so it can be used and tested on any JVM. An instance is not
+ * meant to be used from multiple threads at the same time.
+ *
+ * @author Robin Rex G.
+ */
+public final class KawaseBlur {
+
+    /**
+     * The largest radius the blur is rounded from. Larger radii are clamped.
+     */
+    public static final int MAX_RADIUS = 512;
+
+    /**
+     * The most halvings the blur is done with.
+     */
+    static final int MAX_ITERATIONS = 8;
+
+    /**
+     * The weights of the doubling filter, over the pixels two before to one after the source pixel in both directions,
+     * for an output pixel on an even row and column. The other pixels use the mirrored weights. They add up to
+     * {@link #UP_WEIGHT_SUM}, and are written out in {@link #up(int[], int, int, int[], int, int, int)}.
+     * <pre>
+     *     0   1   3   0
+     *     1  24  34   9
+     *     3  34  38  17
+     *     0   9  17   2
+     * </pre>
+     */
+    private static final int UP_WEIGHT_SUM = 192;
+
+    /**
+     * The halved images, from the largest to the smallest.
+     */
+    private int[][] mLevels = new int[0][];
+
+    /**
+     * The sizes of the halved images, grown with the number of halvings.
+     */
+    private int[] mWidths = new int[0], mHeights = new int[0];
+
+    private int[] mColumnSums;
+
+    private int[] mColumns;
+
+    /**
+     * Blurs the given pixels in place.
+     *
+     * @param pixels The packed ARGB pixels, in rows of {@code width} pixels.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param radius The blur radius. Radii below 1 leave the image untouched; radii above {@link #MAX_RADIUS} are
+     *               clamped.
+     */
+    public void blur(int[] pixels, int width, int height, int radius) {
+        blur(pixels, width, height, radius, 0);
+    }
+
+    /**
+     * Blurs the given pixels in place, and blends the overlay color over the result.
+     *
+     * @param pixels  The packed, premultiplied ARGB pixels, in rows of {@code width} pixels.
+     * @param width   The width of the image.
+     * @param height  The height of the image.
+     * @param radius  The blur radius. Radii below 1 leave the image untouched; radii above {@link #MAX_RADIUS} are
+     *                clamped.
+     * @param overlay The ARGB color blended over the blurred pixels. A fully transparent color blends nothing.
+     */
+    public void blur(int[] pixels, int width, int height, int radius, int overlay) {
+        if (radius < 1 || width <= 0 || height <= 0) {
+            return;
+        }
+
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("Pixel array too small for a " + width + "x" + height + " image.");
+        }
+
+        // No more halvings than the image can take.
+        int iterations = getIterations(Math.min(radius, MAX_RADIUS));
+        if (mWidths.length < iterations + 1) {
+            mWidths = new int[iterations + 1];
+            mHeights = new int[iterations + 1];
+        }
+
+        final int[] widths = mWidths;
+        final int[] heights = mHeights;
+        widths[0] = width;
+        heights[0] = height;
+
+        for (int i = 1; i <= iterations; i++) {
+            if (widths[i - 1] == 1 && heights[i - 1] == 1) {
+                iterations = i - 1;
+                break;
+            }
+
+            widths[i] = (widths[i - 1] + 1) / 2;
+            heights[i] = (heights[i - 1] + 1) / 2;
+        }
+
+        if (mLevels.length < iterations + 1) {
+            final int[][] levels = new int[iterations + 1][];
+            System.arraycopy(mLevels, 0, levels, 0, mLevels.length);
+            mLevels = levels;
+        }
+
+        mLevels[0] = pixels;
+        for (int i = 1; i <= iterations; i++) {
+            if (mLevels[i] == null || mLevels[i].length < widths[i] * heights[i]) {
+                mLevels[i] = new int[widths[i] * heights[i]];
+            }
+
+            down(mLevels[i - 1], widths[i - 1], heights[i - 1], mLevels[i], widths[i], heights[i]);
+        }
+
+        for (int i = iterations; i > 0; i--) {
+            up(mLevels[i], widths[i], heights[i], mLevels[i - 1], widths[i - 1], heights[i - 1],
+                    i == 1 ? overlay : 0);
+        }
+
+        // The caller's array is not kept.
+        mLevels[0] = null;
+    }
+
+    /**
+     * Returns the number of halvings that blur closest to the given radius, each halving about doubling the width of
+     * the blur. The radius is compared to the one of a {@link StackBlur} of the same softness.
+     *
+     * @param radius The blur radius.
+     * @return The number of halvings, at least 1.
+     */
+    static int getIterations(int radius) {
+        // Every halving doubles the width of the blur, from about the width of a radius 4.7 StackBlur for the first
+        // one. Radii switch to the next step halfway between two steps, on a log scale.
+        int iterations = 1;
+        while (iterations < MAX_ITERATIONS && radius * 3 >= 10 << iterations) {
+            iterations++;
+        }
+        return iterations;
+    }
+
+    /**
+     * Releases the halved images.
+     */
+    public void release() {
+        mLevels = new int[0][];
+        mColumnSums = null;
+        mColumns = null;
+    }
+
+    /**
+     * Halves the source into the destination.
+     * <p/>
+     * Like the other passes, it adds the red and blue channels, and the alpha and green channels, two at a time: each
+     * pair is masked into the two halves of an int, which are far enough apart for the weighted sums not to overflow
+     * into each other.
+     */
+    private void down(int[] src, int srcWidth, int srcHeight, int[] dst, int dstWidth, int dstHeight) {
+        if (mColumnSums == null || mColumnSums.length < 4 * srcWidth) {
+            mColumnSums = new int[4 * srcWidth];
+        }
+
+        // The sums of the four rows under every output row, and of the two inner ones, per column.
+        final int[] sums = mColumnSums;
+        final int outerRb = 0, outerAg = srcWidth, innerRb = 2 * srcWidth, innerAg = 3 * srcWidth;
+
+        for (int y = 0; y < dstHeight; y++) {
+            final int row0 = clamp(2 * y - 1, srcHeight) * srcWidth;
+            final int row1 = clamp(2 * y, srcHeight) * srcWidth;
+            final int row2 = clamp(2 * y + 1, srcHeight) * srcWidth;
+            final int row3 = clamp(2 * y + 2, srcHeight) * srcWidth;
+
+            for (int c = 0; c < srcWidth; c++) {
+                final int p0 = src[row0 + c], p1 = src[row1 + c], p2 = src[row2 + c], p3 = src[row3 + c];
+                final int innerRbSum = (p1 & 0xFF00FF) + (p2 & 0xFF00FF);
+                final int innerAgSum = ((p1 >>> 8) & 0xFF00FF) + ((p2 >>> 8) & 0xFF00FF);
+
+                sums[outerRb + c] = innerRbSum + (p0 & 0xFF00FF) + (p3 & 0xFF00FF);
+                sums[outerAg + c] = innerAgSum + ((p0 >>> 8) & 0xFF00FF) + ((p3 >>> 8) & 0xFF00FF);
+                sums[innerRb + c] = innerRbSum;
+                sums[innerAg + c] = innerAgSum;
+            }
+
+            final int out = y * dstWidth;
+            for (int x = 0; x < dstWidth; x++) {
+                final int c0 = Math.max(2 * x - 1, 0);
+                final int c1 = 2 * x;
+                final int c2 = Math.min(2 * x + 1, srcWidth - 1);
+                final int c3 = Math.min(2 * x + 2, srcWidth - 1);
+
+                // The whole 4x4 neighbourhood once, and the inner 2x2 block four more times, adding up to 32.
+                final int rb = sums[outerRb + c0] + sums[outerRb + c1] + sums[outerRb + c2] + sums[outerRb + c3]
+                        + ((sums[innerRb + c1] + sums[innerRb + c2]) << 2) + 0x100010;
+                final int ag = sums[outerAg + c0] + sums[outerAg + c1] + sums[outerAg + c2] + sums[outerAg + c3]
+                        + ((sums[innerAg + c1] + sums[innerAg + c2]) << 2) + 0x100010;
+
+                dst[out + x] = ((ag >>> 5) & 0xFF00FF) << 8 | ((rb >>> 5) & 0xFF00FF);
+            }
+        }
+    }
+
+    /**
+     * Doubles the source into the destination, and blends the overlay over the result.
+     */
+    private void up(int[] src, int srcWidth, int srcHeight, int[] dst, int dstWidth, int dstHeight, int overlay) {
+        final boolean blend = overlay >>> 24 != 0;
+
+        // Odd rows and columns mirror the weights of even ones, so their neighbourhood runs the other way.
+        if (mColumns == null || mColumns.length < 4 * dstWidth) {
+            mColumns = new int[4 * dstWidth];
+        }
+        final int[] columns = mColumns;
+        for (int x = 0; x < dstWidth; x++) {
+            for (int i = 0; i < 4; i++) {
+                columns[4 * x + i] = clamp((x & 1) == 0 ? (x >> 1) - 2 + i : (x >> 1) + 2 - i, srcWidth);
+            }
+        }
+
+        for (int y = 0; y < dstHeight; y++) {
+            final int sourceY = y >> 1;
+            final int direction = (y & 1) == 0 ? 1 : -1;
+            final int first = (y & 1) == 0 ? sourceY - 2 : sourceY + 2;
+            final int row0 = clamp(first, srcHeight) * srcWidth;
+            final int row1 = clamp(first + direction, srcHeight) * srcWidth;
+            final int row2 = clamp(first + 2 * direction, srcHeight) * srcWidth;
+            final int row3 = clamp(first + 3 * direction, srcHeight) * srcWidth;
+
+            final int out = y * dstWidth;
+            for (int x = 0; x < dstWidth; x++) {
+                final int c0 = columns[4 * x], c1 = columns[4 * x + 1], c2 = columns[4 * x + 2],
+                        c3 = columns[4 * x + 3];
+
+                // The twelve non zero weights of the doubling filter, see UP_WEIGHT_SUM.
+                int p = src[row0 + c1];
+                int rb = p & 0xFF00FF, ag = (p >>> 8) & 0xFF00FF;
+                p = src[row0 + c2];
+                rb += (p & 0xFF00FF) * 3;
+                ag += ((p >>> 8) & 0xFF00FF) * 3;
+
+                p = src[row1 + c0];
+                rb += p & 0xFF00FF;
+                ag += (p >>> 8) & 0xFF00FF;
+                p = src[row1 + c1];
+                rb += (p & 0xFF00FF) * 24;
+                ag += ((p >>> 8) & 0xFF00FF) * 24;
+                p = src[row1 + c2];
+                rb += (p & 0xFF00FF) * 34;
+                ag += ((p >>> 8) & 0xFF00FF) * 34;
+                p = src[row1 + c3];
+                rb += (p & 0xFF00FF) * 9;
+                ag += ((p >>> 8) & 0xFF00FF) * 9;
+
+                p = src[row2 + c0];
+                rb += (p & 0xFF00FF) * 3;
+                ag += ((p >>> 8) & 0xFF00FF) * 3;
+                p = src[row2 + c1];
+                rb += (p & 0xFF00FF) * 34;
+                ag += ((p >>> 8) & 0xFF00FF) * 34;
+                p = src[row2 + c2];
+                rb += (p & 0xFF00FF) * 38;
+                ag += ((p >>> 8) & 0xFF00FF) * 38;
+                p = src[row2 + c3];
+                rb += (p & 0xFF00FF) * 17;
+                ag += ((p >>> 8) & 0xFF00FF) * 17;
+
+                p = src[row3 + c1];
+                rb += (p & 0xFF00FF) * 9;
+                ag += ((p >>> 8) & 0xFF00FF) * 9;
+                p = src[row3 + c2];
+                rb += (p & 0xFF00FF) * 17;
+                ag += ((p >>> 8) & 0xFF00FF) * 17;
+                p = src[row3 + c3];
+                rb += (p & 0xFF00FF) * 2;
+                ag += ((p >>> 8) & 0xFF00FF) * 2;
+
+                rb += 0x600060;
+                ag += 0x600060;
+                final int pixel = divide(ag >>> 16) << 24 | divide(rb >>> 16) << 16 | divide(ag & 0xFFFF) << 8
+                        | divide(rb & 0xFFFF);
+                dst[out + x] = blend ? StackBlur.blend(pixel, overlay) : pixel;
+            }
+        }
+    }
+
+    /**
+     * Divides a weighted sum of the doubling filter by {@link #UP_WEIGHT_SUM}, with a multiplication that is exact for
+     * every sum the filter can produce.
+     */
+    private static int divide(int sum) {
+        return sum * 43691 >>> 23;
+    }
+
+    private static int clamp(int index, int size) {
+        return index < 0 ? 0 : index >= size ? size - 1 : index;
+    }
+}
@@ -0,0 +1,71 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+/**
+ * A {@link FrostBackend} that blurs bitmaps on the CPU with the dual Kawase blur of {@link KawaseBlur}. Its cost hardly
+ * grows with the radius, which makes it the backend of choice for very soft frost, at radii where a Gaussian or a
+ * StackBlur kernel gets expensive.
+ * <p/>
+ * Bitmaps of every config are blurred as premultiplied ARGB pixels, and the overlay color is blended by the last
+ * pass.
+ *
+ * @author Robin Rex G.
+ */
+class KawaseFrostBackend implements FrostBackend {
+
+    private final FrostMetrics mMetrics;
+
+    private KawaseBlur mKawaseBlur;
+
+    private final FrostPixels mPixels = new FrostPixels();
+
+    KawaseFrostBackend(FrostMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    @Override
+    public Bitmap frost(Bitmap input, Bitmap output, int radius) {
+        return frost(input, output, radius, Color.TRANSPARENT);
+    }
+
+    @Override
+    public synchronized Bitmap frost(Bitmap input, Bitmap output, int radius, int overlayColor) {
+        // Created on first use, and again after a release.
+        if (mKawaseBlur == null) {
+            mKawaseBlur = new KawaseBlur();
+        }
+
+        final int width = input.getWidth();
+        final int height = input.getHeight();
+
+        long start = System.nanoTime();
+        final int[] pixels = mPixels.read(input);
+        mMetrics.record(FrostMetrics.Stage.UPLOAD, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        mKawaseBlur.blur(pixels, width, height, radius, mPixels.toPixelOrder(overlayColor));
+        mMetrics.record(FrostMetrics.Stage.BLUR, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        mPixels.write(output);
+        mMetrics.record(FrostMetrics.Stage.COPY_BACK, System.nanoTime() - start);
+        return output;
+    }
+
+    @Override
+    public int getMaxRadius() {
+        return KawaseBlur.MAX_RADIUS;
+    }
+
+    @Override
+    public synchronized void release() {
+        mPixels.release();
+
+        if (mKawaseBlur != null) {
+            mKawaseBlur.release();
+            mKawaseBlur = null;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Canvas;
+import android.graphics.Shader;
+import android.view.View;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+
+/**
+ * Frosts a glass view with the blur of the platform renderer, available from API 31. The region of the blurred view
+ * beneath the glass is recorded into a RenderNode that has a blur RenderEffect set, and the node is drawn on the
+ * hardware canvas of the glass view, so the blur runs on the GPU without the content ever being copied into a bitmap.
+ * <p/>
+ * The library is compiled against an older SDK, so the platform classes are reached through reflection. The methods
+ * are looked up once, by {@link #create()}.
+ *
+ * @author Robin Rex G.
+ */
+class RenderEffectFrost {
+
+    /**
+     * The first API level with RenderEffect. Written out since the constant is not part of the compile SDK.
+     */
+    static final int MIN_SDK_VERSION = 31;
+
+    private static Constructor<?> sNodeConstructor;
+
+    private static Method sSetPosition, sBeginRecording, sEndRecording, sSetRenderEffect, sDiscardDisplayList;
+
+    private static Method sCreateBlurEffect, sDrawRenderNode;
+
+    private final Object mNode;
+
+    private float mRadius = -1;
+
+    private RenderEffectFrost(Object node) {
+        mNode = node;
+    }
+
+    /**
+     * Tells whether the platform blur can be used on a device, from a pure check so that it can be tested anywhere.
+     *
+     * @param sdkInt              The API level of the device.
+     * @param hardwareAccelerated True if the glass view is drawn by the hardware renderer. The blur only exists there.
+     * @return True if glass views should be frosted by the platform.
+     */
+    static boolean isSupported(int sdkInt, boolean hardwareAccelerated) {
+        return sdkInt >= MIN_SDK_VERSION && hardwareAccelerated;
+    }
+
+    /**
+     * Creates a platform frost for one glass view.
+     *
+     * @return The platform frost, or null if the platform classes could not be reached.
+     */
+    static RenderEffectFrost create() {
+        try {
+            if (sNodeConstructor == null) {
+                final Class<?> nodeClass = Class.forName("android.graphics.RenderNode");
+                final Class<?> effectClass = Class.forName("android.graphics.RenderEffect");
+
+                sSetPosition = nodeClass.getMethod("setPosition", int.class, int.class, int.class, int.class);
+                sBeginRecording = nodeClass.getMethod("beginRecording", int.class, int.class);
+                sEndRecording = nodeClass.getMethod("endRecording");
+                sSetRenderEffect = nodeClass.getMethod("setRenderEffect", effectClass);
+                sDiscardDisplayList = nodeClass.getMethod("discardDisplayList");
+                sCreateBlurEffect = effectClass.getMethod("createBlurEffect", float.class, float.class,
+                        Shader.TileMode.class);
+                sDrawRenderNode = Canvas.class.getMethod("drawRenderNode", nodeClass);
+                sNodeConstructor = nodeClass.getConstructor(String.class);
+            }
+
+            return new RenderEffectFrost(sNodeConstructor.newInstance("FrostGlass"));
+        } catch (ReflectiveOperationException e) {
+            Logger.error("Platform blur not available: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Records the given region of the blurred view and draws it blurred on the canvas of the glass view.
+     *
+     * @param canvas      The hardware accelerated canvas of the glass view.
+     * @param blurredView The view to frost.
+     * @param glass       The glass view being drawn.
+     * @param region      The region of the blurred view to record, which has to cover the glass and the reach of the
+     *                    blur around it.
+     * @param radius      The blur radius, in pixels of the screen.
+     * @return False if the platform failed to draw, in which case nothing was drawn.
+     */
+    boolean draw(Canvas canvas, View blurredView, View glass, FrostRegion region, float radius) {
+        try {
+            sSetPosition.invoke(mNode, 0, 0, region.width, region.height);
+
+            // Only the region is recorded, so that the content of the blurred view away from the glass is neither
+            // drawn nor blurred.
+            final Canvas recordingCanvas = (Canvas) sBeginRecording.invoke(mNode, region.width, region.height);
+            try {
+                recordingCanvas.translate(-region.left, -region.top);
+                blurredView.draw(recordingCanvas);
+            } finally {
+                sEndRecording.invoke(mNode);
+            }
+
+            // The effect is immutable, so it is only created again when the radius changes.
+            if (radius != mRadius) {
+                sSetRenderEffect.invoke(mNode,
+                        sCreateBlurEffect.invoke(null, radius, radius, Shader.TileMode.CLAMP));
+                mRadius = radius;
+            }
+
+            canvas.save();
+            try {
+                canvas.translate(blurredView.getX() - glass.getX() + region.left,
+                        blurredView.getY() - glass.getY() + region.top);
+                sDrawRenderNode.invoke(canvas, mNode);
+            } finally {
+                canvas.restore();
+            }
+            return true;
+        } catch (ReflectiveOperationException e) {
+            Logger.error("Platform blur failed: " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Drops the recorded content of the blurred view.
+     */
+    void release() {
+        try {
+            sDiscardDisplayList.invoke(mNode);
+        } catch (ReflectiveOperationException e) {
+            Logger.error("Platform blur failed: " + e);
+        }
+    }
+}
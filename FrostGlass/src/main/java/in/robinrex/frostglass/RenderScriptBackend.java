@@ -0,0 +1,220 @@
+package in.robinrex.frostglass;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.v8.renderscript.Allocation;
+import android.support.v8.renderscript.Matrix4f;
+import android.support.v8.renderscript.RenderScript;
+import android.support.v8.renderscript.ScriptIntrinsicColorMatrix;
+
+import java.util.List;
+
+/**
+ * A {@link FrostBackend} that blurs bitmaps with the Renderscript blur intrinsic.
+ * <p/>
+ * The intrinsic only blurs 8 bit elements, so bitmaps in other configs, like the RGB_565 bitmaps of the opaque mode,
+ * are handed to a fallback backend instead.
+ * <p/>
+ * The overlay color is applied by a color matrix intrinsic run on the blurred allocation, before it is copied back. The
+ * allocations hold premultiplied pixels, in which drawing a color over a pixel is the linear function
+ * {@code overlay + pixel * (1 - overlayAlpha)}.
+ * <p/>
+ * A batch of bitmaps alternates between two sets of allocations per size. Script launches are asynchronous, so the
+ * next bitmap is uploaded and its blur queued before the result of the current one is read back, and the Renderscript
+ * threads do not wait on the Java side between bitmaps.
+ *
+ * @author Robin Rex G.
+ */
+class RenderScriptBackend implements BatchFrostBackend {
+
+    /**
+     * The largest radius accepted by ScriptIntrinsicBlur.
+     */
+    static final int MAX_RADIUS = 25;
+
+    private final Context mContext;
+
+    private final FrostMetrics mMetrics;
+
+    private final FrostBackend mFallback;
+
+    private RenderScript mRenderScript;
+
+    private FrostAllocationCache mAllocationCache;
+
+    private ScriptIntrinsicColorMatrix mOverlayScript;
+
+    private final Matrix4f mOverlayMatrix = new Matrix4f();
+
+    RenderScriptBackend(Context context, FrostMetrics metrics, FrostBackend fallback) {
+        mContext = context;
+        mMetrics = metrics;
+        mFallback = fallback;
+    }
+
+    @Override
+    public Bitmap frost(Bitmap input, Bitmap output, int radius) {
+        return frost(input, output, radius, Color.TRANSPARENT);
+    }
+
+    @Override
+    public Bitmap frost(Bitmap input, Bitmap output, int radius, int overlayColor) {
+        if (input.getConfig() != Bitmap.Config.ARGB_8888 || output.getConfig() != Bitmap.Config.ARGB_8888) {
+            return mFallback.frost(input, output, radius, overlayColor);
+        }
+
+        return frostArgb(input, output, radius, overlayColor);
+    }
+
+    private synchronized Bitmap frostArgb(Bitmap input, Bitmap output, int radius, int overlayColor) {
+        createRenderScript();
+
+        final FrostAllocationCache.Entry entry = mAllocationCache.obtain(input);
+
+        long start = System.nanoTime();
+        entry.input.copyFrom(input);
+        mMetrics.record(FrostMetrics.Stage.UPLOAD, System.nanoTime() - start);
+
+        // Script launches are asynchronous, so the blur is waited for here to keep it out of the copy back timing.
+        start = System.nanoTime();
+        entry.script.setRadius(Math.min(radius, MAX_RADIUS));
+        entry.script.forEach(entry.output);
+
+        // The blur has consumed the input allocation, so it receives the tinted result.
+        Allocation result = entry.output;
+        if (Color.alpha(overlayColor) != 0) {
+            setOverlay(overlayColor);
+            mOverlayScript.forEach(entry.output, entry.input);
+            result = entry.input;
+        }
+
+        mRenderScript.finish();
+        mMetrics.record(FrostMetrics.Stage.BLUR, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        result.copyTo(output);
+        mMetrics.record(FrostMetrics.Stage.COPY_BACK, System.nanoTime() - start);
+        return output;
+    }
+
+    @Override
+    public synchronized void frostAll(List<Bitmap> bitmaps, int radius, Listener listener) {
+        createRenderScript();
+
+        // The bitmap whose blur has been queued, and the entry it is blurred in.
+        Bitmap pending = null;
+        FrostAllocationCache.Entry pendingEntry = null;
+        int pendingIndex = -1;
+        int slot = 0;
+
+        for (int i = 0; i < bitmaps.size(); i++) {
+            final Bitmap bitmap = bitmaps.get(i);
+
+            if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+                // The queued blur is reported first, so that the bitmaps are reported in the order of the batch.
+                if (pending != null) {
+                    copyBack(pendingEntry, pending);
+                    final boolean proceed = listener.onFrosted(pendingIndex, pending);
+                    pending = null;
+                    if (!proceed) {
+                        break;
+                    }
+                }
+
+                mFallback.frost(bitmap, bitmap, radius);
+                if (!listener.onFrosted(i, bitmap)) {
+                    break;
+                }
+                continue;
+            }
+
+            final FrostAllocationCache.Entry entry = mAllocationCache.obtain(bitmap, slot);
+            slot ^= 1;
+
+            long start = System.nanoTime();
+            entry.input.copyFrom(bitmap);
+            mMetrics.record(FrostMetrics.Stage.UPLOAD, System.nanoTime() - start);
+
+            entry.script.setRadius(Math.min(radius, MAX_RADIUS));
+            entry.script.forEach(entry.output);
+
+            if (pending != null) {
+                // Waits for the previous blur only, while the one just queued runs.
+                copyBack(pendingEntry, pending);
+
+                if (!listener.onFrosted(pendingIndex, pending)) {
+                    pending = null;
+                    break;
+                }
+            }
+
+            pending = bitmap;
+            pendingEntry = entry;
+            pendingIndex = i;
+        }
+
+        // A stopped batch leaves the queued blur unread, and its bitmap untouched.
+        if (pending != null) {
+            copyBack(pendingEntry, pending);
+            listener.onFrosted(pendingIndex, pending);
+        }
+    }
+
+    /**
+     * Waits for the blur queued in the given entry, and copies its result into the given bitmap.
+     */
+    private void copyBack(FrostAllocationCache.Entry entry, Bitmap bitmap) {
+        final long start = System.nanoTime();
+        entry.output.copyTo(bitmap);
+        mMetrics.record(FrostMetrics.Stage.COPY_BACK, System.nanoTime() - start);
+    }
+
+    /**
+     * Creates the Renderscript context and its allocation cache on first use, and again after a release.
+     */
+    private void createRenderScript() {
+        if (mRenderScript == null) {
+            mRenderScript = RenderScript.create(mContext);
+            mAllocationCache = new FrostAllocationCache(mRenderScript, FrostAllocationCache.DEFAULT_MAX_ENTRIES);
+        }
+    }
+
+    /**
+     * Sets up the color matrix script to draw the given color over the pixels.
+     */
+    private void setOverlay(int overlayColor) {
+        if (mOverlayScript == null) {
+            mOverlayScript = ScriptIntrinsicColorMatrix.create(mRenderScript);
+        }
+
+        final float alpha = Color.alpha(overlayColor) / 255f;
+        mOverlayMatrix.loadIdentity();
+        for (int i = 0; i < 4; i++) {
+            mOverlayMatrix.set(i, i, 1 - alpha);
+        }
+
+        mOverlayScript.setColorMatrix(mOverlayMatrix);
+        mOverlayScript.setAdd(Color.red(overlayColor) / 255f * alpha, Color.green(overlayColor) / 255f * alpha,
+                Color.blue(overlayColor) / 255f * alpha, alpha);
+    }
+
+    @Override
+    public int getMaxRadius() {
+        return MAX_RADIUS;
+    }
+
+    @Override
+    public synchronized void release() {
+        if (mRenderScript != null) {
+            if (mOverlayScript != null) {
+                mOverlayScript.destroy();
+                mOverlayScript = null;
+            }
+            mAllocationCache.clear();
+            mAllocationCache = null;
+            mRenderScript.destroy();
+            mRenderScript = null;
+        }
+    }
+}
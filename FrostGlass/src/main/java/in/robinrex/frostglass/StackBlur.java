@@ -0,0 +1,573 @@
+package in.robinrex.frostglass;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A pure Java StackBlur, after Mario Klingemann, on packed ARGB or RGB_565 pixel arrays. The passes run in bands on a
+ * fork-join pool, and the last one blends the overlay color. An instance is not meant to be shared between threads.
+ *
+ * @author Robin Rex G.
+ */
+public final class StackBlur {
+
+    /**
+     * The largest radius supported by the kernel.
+     */
+    public static final int MAX_RADIUS = 254;
+
+    /**
+     * Bands smaller than this are not split any further.
+     */
+    private static final int MIN_BAND_SIZE = 16;
+
+    private final int mParallelism;
+
+    private final ForkJoinPool mPool;
+
+    private int[] mScratch;
+
+    private short[] mScratch565;
+
+    private int[] mStack;
+
+    /**
+     * The bands of a parallel pass, one per thread, and the task that runs them. Both are reused by every pass, so
+     * that a blur allocates nothing once the stacks of the bands are large enough.
+     */
+    private final BandTask[] mBands;
+
+    private final PassTask mPass;
+
+    /**
+     * Creates a StackBlur that uses one thread per available processor.
+     */
+    public StackBlur() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a StackBlur that splits its passes across the given number of threads. With a parallelism of 1, the
+     * blur runs entirely on the calling thread.
+     *
+     * @param parallelism The number of threads to be used.
+     */
+    public StackBlur(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1. " + parallelism);
+        }
+
+        mParallelism = parallelism;
+        mPool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        mBands = new BandTask[mPool != null ? parallelism : 0];
+        for (int i = 0; i < mBands.length; i++) {
+            mBands[i] = new BandTask();
+        }
+        mPass = new PassTask(mBands);
+    }
+
+    public int getParallelism() {
+        return mParallelism;
+    }
+
+    /**
+     * Blurs the given pixels in place.
+     *
+     * @param pixels The packed ARGB pixels, in rows of {@code width} pixels.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param radius The blur radius. Radii below 1 leave the image untouched; radii above {@link #MAX_RADIUS} are
+     *               clamped.
+     */
+    public void blur(int[] pixels, int width, int height, int radius) {
+        blur(pixels, width, height, radius, 0);
+    }
+
+    /**
+     * Blurs the given pixels in place, and blends the overlay color over the result.
+     *
+     * @param pixels  The packed, premultiplied ARGB pixels, in rows of {@code width} pixels.
+     * @param width   The width of the image.
+     * @param height  The height of the image.
+     * @param radius  The blur radius. Radii below 1 leave the image untouched; radii above {@link #MAX_RADIUS} are
+     *                clamped.
+     * @param overlay The ARGB color blended over the blurred pixels. A fully transparent color blends nothing.
+     */
+    public void blur(int[] pixels, int width, int height, int radius, int overlay) {
+        if (radius < 1 || width <= 0 || height <= 0) {
+            return;
+        }
+
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("Pixel array too small for a " + width + "x" + height + " image.");
+        }
+
+        radius = Math.min(radius, MAX_RADIUS);
+
+        if (mScratch == null || mScratch.length < width * height) {
+            mScratch = new int[width * height];
+        }
+
+        if (mPool == null) {
+            blurRows(pixels, mScratch, width, radius, 0, height, obtainStack(radius));
+            blurColumns(mScratch, pixels, width, height, radius, 0, width, obtainStack(radius), overlay);
+        } else {
+            runPass(true, pixels, mScratch, null, null, width, height, radius, 0);
+            runPass(false, mScratch, pixels, null, null, width, height, radius, overlay);
+        }
+    }
+
+    /**
+     * Blurs the given opaque RGB_565 pixels in place, as laid out in the memory of an RGB_565 bitmap. Only the three
+     * color channels are blurred, which reads and writes half the memory of an ARGB blur.
+     *
+     * @param pixels The packed RGB_565 pixels, in rows of {@code width} pixels.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param radius The blur radius. Radii below 1 leave the image untouched; radii above {@link #MAX_RADIUS} are
+     *               clamped.
+     */
+    public void blurRgb565(short[] pixels, int width, int height, int radius) {
+        blurRgb565(pixels, width, height, radius, 0);
+    }
+
+    /**
+     * Blurs the given opaque RGB_565 pixels in place, and blends the overlay color over the result.
+     *
+     * @param pixels  The packed RGB_565 pixels, in rows of {@code width} pixels.
+     * @param width   The width of the image.
+     * @param height  The height of the image.
+     * @param radius  The blur radius. Radii below 1 leave the image untouched; radii above {@link #MAX_RADIUS} are
+     *                clamped.
+     * @param overlay The ARGB color blended over the blurred pixels. A fully transparent color blends nothing.
+     */
+    public void blurRgb565(short[] pixels, int width, int height, int radius, int overlay) {
+        if (radius < 1 || width <= 0 || height <= 0) {
+            return;
+        }
+
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("Pixel array too small for a " + width + "x" + height + " image.");
+        }
+
+        radius = Math.min(radius, MAX_RADIUS);
+
+        if (mScratch565 == null || mScratch565.length < width * height) {
+            mScratch565 = new short[width * height];
+        }
+
+        if (mPool == null) {
+            blurRows565(pixels, mScratch565, width, radius, 0, height, obtainStack(radius));
+            blurColumns565(mScratch565, pixels, width, height, radius, 0, width, obtainStack(radius), overlay);
+        } else {
+            runPass(true, null, null, pixels, mScratch565, width, height, radius, 0);
+            runPass(false, null, null, mScratch565, pixels, width, height, radius, overlay);
+        }
+    }
+
+    /**
+     * Updates the blur of the previous frame of a scrolling image to the blur of the current frame, when the current
+     * frame is the previous one translated vertically. The previous blurred rows are moved by the shift, and only the
+     * rows whose result differs are blurred again: the rows newly exposed by the scroll and those within the radius of
+     * them, and the rows within the radius of the opposite edge, whose neighbourhood used to be clamped differently.
+     * The result is the same as blurring the current frame with {@link #blur(int[], int, int, int, int)}.
+     *
+     * @param pixels  The current frame, with {@code pixels[y] == previous[y + shift]} for every row y present in both.
+     *                It is left untouched.
+     * @param blurred The blurred previous frame, which receives the blurred current frame.
+     * @param width   The width of the image.
+     * @param height  The height of the image.
+     * @param radius  The blur radius the previous frame was blurred with.
+     * @param shift   The number of rows the content moved up, or down if negative.
+     * @param overlay The overlay color the previous frame was blurred with.
+     * @return False if the shift is too large for the update to be cheaper than a full blur, in which case nothing was
+     * done.
+     */
+    public boolean blurShifted(int[] pixels, int[] blurred, int width, int height, int radius, int shift,
+                               int overlay) {
+        radius = Math.min(radius, MAX_RADIUS);
+        final int exposed = Math.abs(shift);
+
+        if (radius < 1 || width <= 0 || exposed + 2 * radius > height / 2) {
+            return false;
+        }
+
+        if (shift > 0) {
+            System.arraycopy(blurred, shift * width, blurred, 0, (height - shift) * width);
+            blurBand(pixels, blurred, width, height, radius, 0, radius, overlay);
+            blurBand(pixels, blurred, width, height, radius, height - shift - radius, height, overlay);
+        } else {
+            System.arraycopy(blurred, 0, blurred, exposed * width, (height - exposed) * width);
+            blurBand(pixels, blurred, width, height, radius, 0, exposed + radius, overlay);
+            blurBand(pixels, blurred, width, height, radius, height - radius, height, overlay);
+        }
+
+        return true;
+    }
+
+    /**
+     * Blurs the rows {@code [fromRow, toRow)} of the image into the same rows of {@code target}, exactly as a full blur
+     * would. Only the rows within the radius of the band are read.
+     */
+    private void blurBand(int[] pixels, int[] target, int width, int height, int radius, int fromRow, int toRow,
+                          int overlay) {
+        final int first = Math.max(0, fromRow - radius);
+        final int last = Math.min(height, toRow + radius);
+
+        if (mScratch == null || mScratch.length < width * height) {
+            mScratch = new int[width * height];
+        }
+
+        final int[] stack = obtainStack(radius);
+        blurRows(pixels, mScratch, width, radius, first, last, stack);
+
+        // Blurring a column in place is safe, since the line only reads pixels ahead of the one it writes. Starting
+        // the columns at the first row read does not change the band, which is at least a radius away from it.
+        for (int x = 0; x < width; x++) {
+            blurLine(mScratch, mScratch, first * width + x, width, last - first, radius, stack, overlay);
+        }
+
+        System.arraycopy(mScratch, fromRow * width, target, fromRow * width, (toRow - fromRow) * width);
+    }
+
+    private int[] obtainStack(int radius) {
+        if (mStack == null || mStack.length < radius * 2 + 1) {
+            mStack = new int[radius * 2 + 1];
+        }
+
+        return mStack;
+    }
+
+    /**
+     * Stops the threads of the fork-join pool used by this instance.
+     */
+    public void shutdown() {
+        if (mPool != null) {
+            mPool.shutdown();
+        }
+    }
+
+    /**
+     * Blurs all the rows or all the columns on the fork-join pool, split into one band per thread. Either the ARGB or
+     * the RGB_565 arrays are set.
+     */
+    private void runPass(boolean rows, int[] src, int[] dst, short[] src565, short[] dst565, int width, int height,
+                         int radius, int overlay) {
+        final int lines = rows ? height : width;
+        final int bandSize = Math.max(MIN_BAND_SIZE, (lines + mParallelism - 1) / mParallelism);
+
+        for (int i = 0; i < mBands.length; i++) {
+            final int from = Math.min(lines, i * bandSize);
+            mBands[i].reinitialize();
+            mBands[i].set(rows, src, dst, src565, dst565, width, height, radius, from,
+                    Math.min(lines, from + bandSize), overlay);
+        }
+
+        mPass.reinitialize();
+        mPool.invoke(mPass);
+
+        // The bands do not keep the pixels alive between blurs.
+        for (BandTask band : mBands) {
+            band.set(rows, null, null, null, null, 0, 0, 0, 0, 0, 0);
+        }
+    }
+
+    private static void blurRows(int[] src, int[] dst, int width, int radius, int fromRow, int toRow, int[] stack) {
+        for (int y = fromRow; y < toRow; y++) {
+            blurLine(src, dst, y * width, 1, width, radius, stack, 0);
+        }
+    }
+
+    private static void blurColumns(int[] src, int[] dst, int width, int height, int radius, int fromColumn,
+                                    int toColumn, int[] stack, int overlay) {
+        for (int x = fromColumn; x < toColumn; x++) {
+            blurLine(src, dst, x, width, height, radius, stack, overlay);
+        }
+    }
+
+    private static void blurRows565(short[] src, short[] dst, int width, int radius, int fromRow, int toRow,
+                                    int[] stack) {
+        for (int y = fromRow; y < toRow; y++) {
+            blurLine565(src, dst, y * width, 1, width, radius, stack, 0);
+        }
+    }
+
+    private static void blurColumns565(short[] src, short[] dst, int width, int height, int radius, int fromColumn,
+                                       int toColumn, int[] stack, int overlay) {
+        for (int x = fromColumn; x < toColumn; x++) {
+            blurLine565(src, dst, x, width, height, radius, stack, overlay);
+        }
+    }
+
+    /**
+     * Blurs one row or column of pixels from {@code src} into {@code dst}. Pixels outside the line are treated as
+     * copies of the nearest edge pixel.
+     *
+     * @param offset  The index of the first pixel of the line.
+     * @param stride  The distance between two consecutive pixels of the line.
+     * @param length  The number of pixels in the line.
+     * @param stack   A scratch array of at least {@code 2 * radius + 1} entries.
+     * @param overlay The color blended over every pixel written to {@code dst}, or 0 for none.
+     */
+    static void blurLine(int[] src, int[] dst, int offset, int stride, int length, int radius, int[] stack,
+                         int overlay) {
+        final int div = radius * 2 + 1;
+        final int divSum = (radius + 1) * (radius + 1);
+        final int last = length - 1;
+        final boolean tinted = (overlay >>> 24) != 0;
+
+        int sumA = 0, sumR = 0, sumG = 0, sumB = 0;
+        int inA = 0, inR = 0, inG = 0, inB = 0;
+        int outA = 0, outR = 0, outG = 0, outB = 0;
+
+        for (int i = -radius; i <= radius; i++) {
+            final int p = src[offset + Math.min(last, Math.max(i, 0)) * stride];
+            stack[i + radius] = p;
+
+            final int weight = radius + 1 - Math.abs(i);
+            final int a = p >>> 24, r = (p >> 16) & 0xFF, g = (p >> 8) & 0xFF, b = p & 0xFF;
+            sumA += a * weight;
+            sumR += r * weight;
+            sumG += g * weight;
+            sumB += b * weight;
+
+            if (i > 0) {
+                inA += a;
+                inR += r;
+                inG += g;
+                inB += b;
+            } else {
+                outA += a;
+                outR += r;
+                outG += g;
+                outB += b;
+            }
+        }
+
+        int stackPointer = radius;
+        int index = offset;
+
+        for (int x = 0; x < length; x++, index += stride) {
+            final int blurred = (sumA / divSum) << 24 | (sumR / divSum) << 16 | (sumG / divSum) << 8 | (sumB / divSum);
+            dst[index] = tinted ? blend(blurred, overlay) : blurred;
+
+            sumA -= outA;
+            sumR -= outR;
+            sumG -= outG;
+            sumB -= outB;
+
+            // The oldest pixel on the stack leaves the window, and the next pixel of the line takes its slot.
+            final int oldest = (stackPointer + radius + 1) % div;
+            int p = stack[oldest];
+            outA -= p >>> 24;
+            outR -= (p >> 16) & 0xFF;
+            outG -= (p >> 8) & 0xFF;
+            outB -= p & 0xFF;
+
+            p = src[offset + Math.min(x + radius + 1, last) * stride];
+            stack[oldest] = p;
+            inA += p >>> 24;
+            inR += (p >> 16) & 0xFF;
+            inG += (p >> 8) & 0xFF;
+            inB += p & 0xFF;
+
+            sumA += inA;
+            sumR += inR;
+            sumG += inG;
+            sumB += inB;
+
+            // The pixel after the centre moves from the incoming half of the stack to the outgoing half.
+            stackPointer = (stackPointer + 1) % div;
+            p = stack[stackPointer];
+            outA += p >>> 24;
+            outR += (p >> 16) & 0xFF;
+            outG += (p >> 8) & 0xFF;
+            outB += p & 0xFF;
+            inA -= p >>> 24;
+            inR -= (p >> 16) & 0xFF;
+            inG -= (p >> 8) & 0xFF;
+            inB -= p & 0xFF;
+        }
+    }
+
+    /**
+     * Same as {@link #blurLine(int[], int[], int, int, int, int, int[], int)}, for RGB_565 pixels. The averages are
+     * rounded instead of truncated, since truncating to 5 or 6 bits would visibly darken the image with every pass.
+     */
+    static void blurLine565(short[] src, short[] dst, int offset, int stride, int length, int radius, int[] stack,
+                            int overlay) {
+        final int div = radius * 2 + 1;
+        final int divSum = (radius + 1) * (radius + 1);
+        final int half = divSum / 2;
+        final int last = length - 1;
+
+        // The overlay is blended in the 5 and 6 bit channels of the pixels, as c * (1 - a) + o * a, with both terms
+        // scaled by 255 * 255 to keep the precision of the 8 bit overlay.
+        final int overlayAlpha = overlay >>> 24;
+        final int inverseAlpha = (255 - overlayAlpha) * 255;
+        final int overlayR = ((overlay >> 16) & 0xFF) * 31 * overlayAlpha;
+        final int overlayG = ((overlay >> 8) & 0xFF) * 63 * overlayAlpha;
+        final int overlayB = (overlay & 0xFF) * 31 * overlayAlpha;
+
+        int sumR = 0, sumG = 0, sumB = 0;
+        int inR = 0, inG = 0, inB = 0;
+        int outR = 0, outG = 0, outB = 0;
+
+        for (int i = -radius; i <= radius; i++) {
+            final int p = src[offset + Math.min(last, Math.max(i, 0)) * stride] & 0xFFFF;
+            stack[i + radius] = p;
+
+            final int weight = radius + 1 - Math.abs(i);
+            final int r = p >> 11, g = (p >> 5) & 0x3F, b = p & 0x1F;
+            sumR += r * weight;
+            sumG += g * weight;
+            sumB += b * weight;
+
+            if (i > 0) {
+                inR += r;
+                inG += g;
+                inB += b;
+            } else {
+                outR += r;
+                outG += g;
+                outB += b;
+            }
+        }
+
+        int stackPointer = radius;
+        int index = offset;
+
+        for (int x = 0; x < length; x++, index += stride) {
+            int r = (sumR + half) / divSum, g = (sumG + half) / divSum, b = (sumB + half) / divSum;
+            if (overlayAlpha != 0) {
+                r = (r * inverseAlpha + overlayR + 32512) / 65025;
+                g = (g * inverseAlpha + overlayG + 32512) / 65025;
+                b = (b * inverseAlpha + overlayB + 32512) / 65025;
+            }
+            dst[index] = (short) (r << 11 | g << 5 | b);
+
+            sumR -= outR;
+            sumG -= outG;
+            sumB -= outB;
+
+            final int oldest = (stackPointer + radius + 1) % div;
+            int p = stack[oldest];
+            outR -= p >> 11;
+            outG -= (p >> 5) & 0x3F;
+            outB -= p & 0x1F;
+
+            p = src[offset + Math.min(x + radius + 1, last) * stride] & 0xFFFF;
+            stack[oldest] = p;
+            inR += p >> 11;
+            inG += (p >> 5) & 0x3F;
+            inB += p & 0x1F;
+
+            sumR += inR;
+            sumG += inG;
+            sumB += inB;
+
+            stackPointer = (stackPointer + 1) % div;
+            p = stack[stackPointer];
+            outR += p >> 11;
+            outG += (p >> 5) & 0x3F;
+            outB += p & 0x1F;
+            inR -= p >> 11;
+            inG -= (p >> 5) & 0x3F;
+            inB -= p & 0x1F;
+        }
+    }
+
+    /**
+     * Blends the unpremultiplied overlay over a premultiplied pixel, the way it would be drawn over the pixel. The red
+     * and blue channels of the overlay only have to be in the same order as the ones of the pixel.
+     */
+    static int blend(int pixel, int overlay) {
+        final int overlayAlpha = overlay >>> 24;
+        final int inverseAlpha = 255 - overlayAlpha;
+
+        final int a = (255 * overlayAlpha + (pixel >>> 24) * inverseAlpha + 127) / 255;
+        final int r = (((overlay >> 16) & 0xFF) * overlayAlpha + ((pixel >> 16) & 0xFF) * inverseAlpha + 127) / 255;
+        final int g = (((overlay >> 8) & 0xFF) * overlayAlpha + ((pixel >> 8) & 0xFF) * inverseAlpha + 127) / 255;
+        final int b = ((overlay & 0xFF) * overlayAlpha + (pixel & 0xFF) * inverseAlpha + 127) / 255;
+        return a << 24 | r << 16 | g << 8 | b;
+    }
+
+    /**
+     * Runs the bands of a pass, and returns once they are all done.
+     */
+    private static final class PassTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final BandTask[] mBands;
+
+        PassTask(BandTask[] bands) {
+            mBands = bands;
+        }
+
+        @Override
+        protected void compute() {
+            invokeAll(mBands);
+        }
+    }
+
+    /**
+     * Blurs a band of rows or columns, with a stack of its own. Either the ARGB or the RGB_565 arrays are set.
+     */
+    private static final class BandTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private boolean mRows;
+
+        private int[] mSrc, mDst;
+
+        private short[] mSrc565, mDst565;
+
+        private int mWidth, mHeight, mRadius;
+
+        private int mFrom, mTo;
+
+        private int mOverlay;
+
+        private int[] mStack = new int[0];
+
+        void set(boolean rows, int[] src, int[] dst, short[] src565, short[] dst565, int width, int height,
+                 int radius, int from, int to, int overlay) {
+            mRows = rows;
+            mSrc = src;
+            mDst = dst;
+            mSrc565 = src565;
+            mDst565 = dst565;
+            mWidth = width;
+            mHeight = height;
+            mRadius = radius;
+            mFrom = from;
+            mTo = to;
+            mOverlay = overlay;
+        }
+
+        @Override
+        protected void compute() {
+            if (mFrom >= mTo) {
+                return;
+            }
+
+            if (mStack.length < mRadius * 2 + 1) {
+                mStack = new int[mRadius * 2 + 1];
+            }
+
+            if (mSrc565 != null) {
+                if (mRows) {
+                    blurRows565(mSrc565, mDst565, mWidth, mRadius, mFrom, mTo, mStack);
+                } else {
+                    blurColumns565(mSrc565, mDst565, mWidth, mHeight, mRadius, mFrom, mTo, mStack, mOverlay);
+                }
+            } else if (mRows) {
+                blurRows(mSrc, mDst, mWidth, mRadius, mFrom, mTo, mStack);
+            } else {
+                blurColumns(mSrc, mDst, mWidth, mHeight, mRadius, mFrom, mTo, mStack, mOverlay);
+            }
+        }
+    }
+}
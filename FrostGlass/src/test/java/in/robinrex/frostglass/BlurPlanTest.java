@@ -0,0 +1,65 @@
+package in.robinrex.frostglass;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BlurPlan}.
+ */
+public class BlurPlanTest {
+
+    @Test
+    public void smallRadius_needsNoExtraDownsample() throws Exception {
+        BlurPlan plan = BlurPlan.plan(15, 8, 25);
+
+        assertEquals(1, plan.getExtraDownsample());
+        assertEquals(8f, plan.getDownsampleFactor(), 0f);
+        assertEquals(15, plan.getRadius());
+    }
+
+    @Test
+    public void largeRadius_isSplitIntoDownsampleAndKernel() throws Exception {
+        BlurPlan plan = BlurPlan.plan(100, 8, 25);
+
+        assertEquals(4, plan.getExtraDownsample());
+        assertEquals(32f, plan.getDownsampleFactor(), 0f);
+        assertEquals(25, plan.getRadius());
+    }
+
+    @Test
+    public void largeRadius_staysWholeWithinBackendLimit() throws Exception {
+        BlurPlan plan = BlurPlan.plan(100, 8, KawaseBlur.MAX_RADIUS);
+
+        assertEquals(1, plan.getExtraDownsample());
+        assertEquals(8f, plan.getDownsampleFactor(), 0f);
+        assertEquals(100, plan.getRadius());
+    }
+
+    @Test
+    public void kernelRadius_neverExceedsBackendLimit() throws Exception {
+        for (int radius = 1; radius <= 400; radius++) {
+            BlurPlan plan = BlurPlan.plan(radius, 4, 25);
+
+            assertTrue(plan.getRadius() >= 1);
+            assertTrue(plan.getRadius() <= 25);
+            // The visual radius stays within half a downsampled pixel of the request.
+            assertEquals(radius, plan.getRadius() * plan.getExtraDownsample(), plan.getExtraDownsample() / 2f);
+        }
+    }
+
+    @Test
+    public void scaleRadius_followsPlanResolution() throws Exception {
+        BlurPlan plan = BlurPlan.plan(60, 8, 25);
+
+        assertEquals(3, plan.getExtraDownsample());
+        assertEquals(1, plan.scaleRadius(1));
+        assertEquals(10, plan.scaleRadius(30));
+        assertEquals(plan.getRadius(), plan.scaleRadius(60));
+    }
+
+    @Test
+    public void radiusBelowOne_isClampedToOne() throws Exception {
+        assertEquals(1, BlurPlan.plan(0, 8, 25).getRadius());
+    }
+}
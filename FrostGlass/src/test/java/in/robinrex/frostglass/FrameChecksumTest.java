@@ -0,0 +1,75 @@
+package in.robinrex.frostglass;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FrameChecksum}.
+ */
+public class FrameChecksumTest {
+
+    @Test
+    public void identicalRows_haveIdenticalChecksums() throws Exception {
+        int[] row = {0xFF000000, 0xFF112233, 0xFF445566, 0xFF778899};
+
+        assertEquals(FrameChecksum.update(FrameChecksum.EMPTY, row, row.length, 1),
+                FrameChecksum.update(FrameChecksum.EMPTY, row.clone(), row.length, 1));
+    }
+
+    @Test
+    public void changedPixel_changesChecksum() throws Exception {
+        int[] row = {0xFF000000, 0xFF112233, 0xFF445566, 0xFF778899};
+        int[] changed = row.clone();
+        changed[2] = 0xFF445567;
+
+        assertNotEquals(FrameChecksum.update(FrameChecksum.EMPTY, row, row.length, 1),
+                FrameChecksum.update(FrameChecksum.EMPTY, changed, changed.length, 1));
+    }
+
+    @Test
+    public void swappedRows_changeChecksum() throws Exception {
+        int[] first = {1, 2, 3};
+        int[] second = {4, 5, 6};
+
+        long forward = FrameChecksum.update(FrameChecksum.update(FrameChecksum.EMPTY, first, 3, 1), second, 3, 1);
+        long backward = FrameChecksum.update(FrameChecksum.update(FrameChecksum.EMPTY, second, 3, 1), first, 3, 1);
+
+        assertNotEquals(forward, backward);
+    }
+
+    @Test
+    public void step_limitsNumberOfSamples() throws Exception {
+        assertEquals(1, FrameChecksum.step(100, 256));
+        assertEquals(1, FrameChecksum.step(256, 256));
+        assertEquals(2, FrameChecksum.step(257, 256));
+        assertEquals(8, FrameChecksum.step(1920, 256));
+    }
+
+    @Test
+    public void scrolledRows_findShift() throws Exception {
+        long[] previous = {10, 11, 12, 13, 14, 15, 16, 17};
+        long[] up = {13, 14, 15, 16, 17, 20, 21, 22};
+        long[] down = {30, 31, 10, 11, 12, 13, 14, 15};
+
+        assertEquals(3, FrameChecksum.findShift(previous, up, 8, 4));
+        assertEquals(-2, FrameChecksum.findShift(previous, down, 8, 4));
+    }
+
+    @Test
+    public void changedRows_findNoShift() throws Exception {
+        long[] previous = {10, 11, 12, 13, 14, 15, 16, 17};
+        long[] current = {13, 14, 99, 16, 17, 20, 21, 22};
+
+        assertEquals(0, FrameChecksum.findShift(previous, current, 8, 4));
+    }
+
+    @Test
+    public void shiftBeyondLimit_isNotFound() throws Exception {
+        long[] previous = {10, 11, 12, 13, 14, 15, 16, 17};
+        long[] current = {15, 16, 17, 20, 21, 22, 23, 24};
+
+        assertEquals(0, FrameChecksum.findShift(previous, current, 8, 4));
+        assertEquals(5, FrameChecksum.findShift(previous, current, 8, 5));
+    }
+}
@@ -0,0 +1,75 @@
+package in.robinrex.frostglass;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FramePacer}.
+ */
+public class FramePacerTest {
+
+    /**
+     * Feeds the pacer one second of vsync frames at the given refresh rate, with the given timestamp jitter on every
+     * other frame, and returns how many frames it rendered.
+     */
+    private static int renderedFrames(FramePacer pacer, int refreshRate, long jitterNanos) {
+        final long period = 1000000000L / refreshRate;
+        int rendered = 0;
+
+        for (int i = 0; i < refreshRate; i++) {
+            final long jitter = i % 2 == 0 ? jitterNanos : -jitterNanos;
+            if (pacer.shouldRender(1000000000L + i * period + jitter)) {
+                rendered++;
+            }
+        }
+
+        return rendered;
+    }
+
+    @Test
+    public void unlimited_rendersEveryFrame() throws Exception {
+        FramePacer pacer = new FramePacer();
+        pacer.setFrameRate(0);
+
+        assertEquals(120, renderedFrames(pacer, 120, 0));
+    }
+
+    @Test
+    public void cap_rendersEvenlySpacedFrames() throws Exception {
+        FramePacer pacer = new FramePacer();
+        pacer.setFrameRate(30);
+
+        assertEquals(30, renderedFrames(pacer, 120, 0));
+
+        pacer.reset();
+        assertEquals(30, renderedFrames(pacer, 90, 0));
+    }
+
+    @Test
+    public void cap_absorbsTimestampJitter() throws Exception {
+        FramePacer pacer = new FramePacer();
+        pacer.setFrameRate(30);
+
+        assertEquals(30, renderedFrames(pacer, 120, 500000));
+    }
+
+    @Test
+    public void capAboveRefreshRate_rendersEveryFrame() throws Exception {
+        FramePacer pacer = new FramePacer();
+        pacer.setFrameRate(120);
+
+        assertEquals(60, renderedFrames(pacer, 60, 0));
+    }
+
+    @Test
+    public void missedFrames_restartTheSchedule() throws Exception {
+        FramePacer pacer = new FramePacer();
+        pacer.setFrameRate(30);
+
+        assertTrue(pacer.shouldRender(0));
+        assertTrue(pacer.shouldRender(500000000L));
+        assertFalse(pacer.shouldRender(508333333L));
+        assertTrue(pacer.shouldRender(533333333L));
+    }
+}
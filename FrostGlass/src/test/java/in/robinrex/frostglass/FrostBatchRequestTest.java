@@ -0,0 +1,173 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Robolectric tests for the callbacks of {@link FrostBatchRequest}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class FrostBatchRequestTest {
+
+    /**
+     * A backend without batch support, which frosts the bitmaps one by one in the order of the batch.
+     */
+    private static class SerialBackend implements FrostBackend {
+
+        @Override
+        public Bitmap frost(Bitmap input, Bitmap output, int radius) {
+            return frost(input, output, radius, Color.TRANSPARENT);
+        }
+
+        @Override
+        public Bitmap frost(Bitmap input, Bitmap output, int radius, int overlayColor) {
+            return output;
+        }
+
+        @Override
+        public int getMaxRadius() {
+            return 25;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    /**
+     * A callback that records every call, in order.
+     */
+    private static class RecordingCallback implements FrostBatchCallback {
+
+        final List<String> calls = new ArrayList<>();
+
+        final List<Bitmap> frosted = new ArrayList<>();
+
+        @Override
+        public void onFrosted(int index, Bitmap frosted) {
+            calls.add("frosted " + index);
+            this.frosted.add(frosted);
+        }
+
+        @Override
+        public void onBatchFrosted(List<Bitmap> frosted) {
+            calls.add("batch " + frosted.size());
+        }
+    }
+
+    private FrostEngine mEngine;
+
+    private RecordingCallback mCallback;
+
+    private List<Bitmap> mBitmaps;
+
+    @Before
+    public void setUp() throws Exception {
+        mEngine = FrostEngine.acquire(RuntimeEnvironment.application);
+        mCallback = new RecordingCallback();
+
+        mBitmaps = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            mBitmaps.add(Bitmap.createBitmap(8 + i, 8, Bitmap.Config.ARGB_8888));
+        }
+
+        // The callbacks are posted from the batch threads, and only run once the main looper is resumed.
+        ShadowLooper.pauseMainLooper();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ShadowLooper.unPauseMainLooper();
+        mEngine.release();
+    }
+
+    private void runUiThreadTasks() {
+        ShadowLooper.unPauseMainLooper();
+        ShadowLooper.runUiThreadTasks();
+    }
+
+    @Test
+    public void serialBackend_reportsBitmapsInOrderThenBatch() throws Exception {
+        FrostBatchRequest request = new FrostBatchRequest(mEngine, mBitmaps, 2, new SerialBackend(), mCallback);
+        request.run();
+        runUiThreadTasks();
+
+        assertEquals(Arrays.asList("frosted 0", "frosted 1", "frosted 2", "frosted 3", "batch 4"), mCallback.calls);
+        assertEquals(mBitmaps, mCallback.frosted);
+        assertSame(mBitmaps, request.get());
+    }
+
+    @Test
+    public void parallelBackend_reportsEveryBitmapOnceThenBatch() throws Exception {
+        FrostBatchRequest request = new FrostBatchRequest(mEngine, mBitmaps, 2,
+                mEngine.getBackend(FrostEngine.Backend.JAVA), mCallback);
+        request.run();
+        runUiThreadTasks();
+
+        assertEquals(5, mCallback.calls.size());
+        assertEquals("batch 4", mCallback.calls.get(4));
+
+        List<String> reported = new ArrayList<>(mCallback.calls.subList(0, 4));
+        Collections.sort(reported);
+        assertEquals(Arrays.asList("frosted 0", "frosted 1", "frosted 2", "frosted 3"), reported);
+    }
+
+    @Test
+    public void cancelledWhileRunning_stopsBatchAndSilencesCallback() throws Exception {
+        final FrostBatchRequest[] request = new FrostBatchRequest[1];
+        final int[] frosts = new int[1];
+        FrostBackend cancellingBackend = new SerialBackend() {
+            @Override
+            public Bitmap frost(Bitmap input, Bitmap output, int radius, int overlayColor) {
+                if (++frosts[0] == 2) {
+                    request[0].cancel(false);
+                }
+                return output;
+            }
+        };
+
+        request[0] = new FrostBatchRequest(mEngine, mBitmaps, 2, cancellingBackend, mCallback);
+        request[0].run();
+        runUiThreadTasks();
+
+        assertEquals(2, frosts[0]);
+        assertTrue(mCallback.calls.isEmpty());
+    }
+
+    @Test
+    public void cancelledBeforeStart_frostsNothing() throws Exception {
+        FrostBatchRequest request = new FrostBatchRequest(mEngine, mBitmaps, 2, new SerialBackend(), mCallback);
+        request.cancel(false);
+        request.run();
+        runUiThreadTasks();
+
+        assertTrue(mCallback.calls.isEmpty());
+        assertTrue(request.isCancelled());
+    }
+
+    @Test
+    public void nullCallback_isAllowed() throws Exception {
+        FrostBatchRequest request = new FrostBatchRequest(mEngine, mBitmaps, 2, new SerialBackend(), null);
+        request.run();
+        runUiThreadTasks();
+
+        assertSame(mBitmaps, request.get());
+    }
+}
@@ -0,0 +1,125 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Robolectric tests for the reuse and the byte budget of {@link FrostBitmapPool}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class FrostBitmapPoolTest {
+
+    @Test
+    public void acquire_reusesBitmapOfSameSizeAndConfig() throws Exception {
+        FrostBitmapPool pool = new FrostBitmapPool();
+        Bitmap bitmap = pool.acquire(20, 10, Bitmap.Config.ARGB_8888);
+        pool.release(bitmap);
+
+        assertSame(bitmap, pool.acquire(20, 10, Bitmap.Config.ARGB_8888));
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+        assertEquals(0, pool.getCurrentBytes());
+    }
+
+    @Test
+    public void acquire_doesNotReuseOtherSizeOrConfig() throws Exception {
+        FrostBitmapPool pool = new FrostBitmapPool();
+        Bitmap bitmap = pool.acquire(20, 10, Bitmap.Config.ARGB_8888);
+        pool.release(bitmap);
+
+        assertNotSame(bitmap, pool.acquire(10, 20, Bitmap.Config.ARGB_8888));
+        assertNotSame(bitmap, pool.acquire(20, 10, Bitmap.Config.RGB_565));
+        assertEquals(0, pool.getHitCount());
+        assertEquals(3, pool.getMissCount());
+        assertEquals(bitmap.getAllocationByteCount(), pool.getCurrentBytes());
+    }
+
+    @Test
+    public void release_overBudget_recyclesLeastRecentlyUsed() throws Exception {
+        Bitmap first = Bitmap.createBitmap(20, 10, Bitmap.Config.ARGB_8888);
+        Bitmap second = Bitmap.createBitmap(10, 20, Bitmap.Config.ARGB_8888);
+        Bitmap third = Bitmap.createBitmap(5, 40, Bitmap.Config.ARGB_8888);
+        FrostBitmapPool pool = new FrostBitmapPool(2 * first.getAllocationByteCount());
+
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+
+        assertTrue(first.isRecycled());
+        assertFalse(second.isRecycled());
+        assertFalse(third.isRecycled());
+        assertEquals(second.getAllocationByteCount() + third.getAllocationByteCount(), pool.getCurrentBytes());
+    }
+
+    @Test
+    public void release_largerThanBudget_recyclesRightAway() throws Exception {
+        Bitmap bitmap = Bitmap.createBitmap(20, 10, Bitmap.Config.ARGB_8888);
+        FrostBitmapPool pool = new FrostBitmapPool(bitmap.getAllocationByteCount() - 1);
+
+        pool.release(bitmap);
+
+        assertTrue(bitmap.isRecycled());
+        assertEquals(0, pool.getCurrentBytes());
+    }
+
+    @Test
+    public void setMaxBytes_trimsPooledBitmaps() throws Exception {
+        FrostBitmapPool pool = new FrostBitmapPool();
+        Bitmap first = pool.acquire(20, 10, Bitmap.Config.ARGB_8888);
+        Bitmap second = pool.acquire(20, 10, Bitmap.Config.ARGB_8888);
+        pool.release(first);
+        pool.release(second);
+
+        pool.setMaxBytes(second.getAllocationByteCount());
+
+        assertTrue(first.isRecycled());
+        assertFalse(second.isRecycled());
+        assertEquals(second.getAllocationByteCount(), pool.getCurrentBytes());
+
+        pool.clear();
+
+        assertTrue(second.isRecycled());
+        assertEquals(0, pool.getCurrentBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void release_twice_isRejected() throws Exception {
+        FrostBitmapPool pool = new FrostBitmapPool();
+        Bitmap bitmap = pool.acquire(20, 10, Bitmap.Config.ARGB_8888);
+
+        pool.release(bitmap);
+        pool.release(bitmap);
+    }
+
+    @Test
+    public void release_afterReacquire_isAccepted() throws Exception {
+        FrostBitmapPool pool = new FrostBitmapPool();
+        Bitmap bitmap = pool.acquire(20, 10, Bitmap.Config.ARGB_8888);
+        pool.release(bitmap);
+
+        assertSame(bitmap, pool.acquire(20, 10, Bitmap.Config.ARGB_8888));
+        pool.release(bitmap);
+
+        assertEquals(bitmap.getAllocationByteCount(), pool.getCurrentBytes());
+    }
+
+    @Test
+    public void release_recycledBitmap_isIgnored() throws Exception {
+        FrostBitmapPool pool = new FrostBitmapPool();
+        Bitmap bitmap = pool.acquire(20, 10, Bitmap.Config.ARGB_8888);
+        bitmap.recycle();
+
+        pool.release(bitmap);
+        pool.release(null);
+
+        assertEquals(0, pool.getCurrentBytes());
+        assertNotSame(bitmap, pool.acquire(20, 10, Bitmap.Config.ARGB_8888));
+    }
+}
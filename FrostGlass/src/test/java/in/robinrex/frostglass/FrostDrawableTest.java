@@ -0,0 +1,97 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Robolectric tests for the buffers of {@link FrostDrawable}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class FrostDrawableTest {
+
+    private FrostBitmapPool mPool;
+
+    private FrostDrawable mDrawable;
+
+    @Before
+    public void setUp() throws Exception {
+        mPool = new FrostBitmapPool();
+        mDrawable = new FrostDrawable(mPool, new FrostMetrics());
+    }
+
+    @Test
+    public void liveFrames_reuseTwoBuffers() throws Exception {
+        Bitmap first = mDrawable.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888);
+        mDrawable.swap();
+        Bitmap second = mDrawable.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888);
+        mDrawable.swap();
+
+        for (int i = 0; i < 10; i++) {
+            Bitmap back = mDrawable.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888);
+            assertSame(i % 2 == 0 ? first : second, back);
+            mDrawable.swap();
+            assertSame(back, mDrawable.getBitmap());
+        }
+
+        assertNotSame(first, second);
+        assertEquals(2, mPool.getMissCount());
+        assertEquals(0, mPool.getHitCount());
+    }
+
+    @Test
+    public void skippedFrame_keepsTheBackBuffer() throws Exception {
+        Bitmap back = mDrawable.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888);
+
+        assertSame(back, mDrawable.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888));
+        assertNull(mDrawable.getBitmap());
+    }
+
+    @Test
+    public void resizedFrame_replacesTheBackBuffer() throws Exception {
+        Bitmap small = mDrawable.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888);
+        Bitmap large = mDrawable.obtainBackBuffer(40, 20, Bitmap.Config.ARGB_8888);
+
+        assertEquals(40, large.getWidth());
+        assertSame(small, mPool.acquire(20, 10, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void replacedBitmap_goesBackToThePool() throws Exception {
+        Bitmap old = mPool.acquire(20, 10, Bitmap.Config.ARGB_8888);
+        mDrawable.setBitmap(old);
+        mDrawable.setBitmap(mPool.acquire(20, 10, Bitmap.Config.ARGB_8888));
+
+        assertSame(old, mPool.acquire(20, 10, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void borrowedBitmap_isNeverPooled() throws Exception {
+        Bitmap borrowed = Bitmap.createBitmap(20, 10, Bitmap.Config.ARGB_8888);
+        mDrawable.setBorrowedBitmap(borrowed);
+        mDrawable.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888);
+        mDrawable.swap();
+        mDrawable.release();
+
+        Bitmap pooled = mPool.acquire(20, 10, Bitmap.Config.ARGB_8888);
+        assertNotSame(borrowed, pooled);
+        assertNotSame(borrowed, mPool.acquire(20, 10, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void reclaimedBitmap_isPooledOnceReplaced() throws Exception {
+        Bitmap front = Bitmap.createBitmap(20, 10, Bitmap.Config.ARGB_8888);
+        mDrawable.setBorrowedBitmap(front);
+        mDrawable.setBitmap(front);
+        mDrawable.release();
+
+        assertSame(front, mPool.acquire(20, 10, Bitmap.Config.ARGB_8888));
+    }
+}
@@ -0,0 +1,114 @@
+package in.robinrex.frostglass;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Robolectric tests for the references and the memory trimming of {@link FrostEngine}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class FrostEngineTest {
+
+    private FrostEngine mEngine;
+
+    private int mReferences;
+
+    @Before
+    public void setUp() throws Exception {
+        mEngine = FrostEngine.acquire(RuntimeEnvironment.application);
+        mReferences = mEngine.getReferenceCount();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        while (mEngine.getReferenceCount() >= mReferences) {
+            mEngine.release();
+        }
+    }
+
+    /**
+     * Hands a bitmap to the pool of the engine, so that there is something to trim.
+     */
+    private void fillPool() {
+        mEngine.getBitmapPool().release(Bitmap.createBitmap(20, 10, Bitmap.Config.ARGB_8888));
+        assertTrue(mEngine.getBitmapPool().getCurrentBytes() > 0);
+    }
+
+    @Test
+    public void acquire_returnsSharedInstanceAndCountsReferences() throws Exception {
+        assertSame(mEngine, FrostEngine.acquire(RuntimeEnvironment.application));
+        assertSame(mEngine, FrostEngine.getInstance());
+        assertEquals(mReferences + 1, mEngine.getReferenceCount());
+
+        mEngine.release();
+        assertEquals(mReferences, mEngine.getReferenceCount());
+    }
+
+    @Test
+    public void release_keepsPoolWhileReferenced() throws Exception {
+        FrostEngine.acquire(RuntimeEnvironment.application);
+        fillPool();
+
+        mEngine.release();
+
+        assertTrue(mEngine.getBitmapPool().getCurrentBytes() > 0);
+    }
+
+    @Test
+    public void lastRelease_clearsPool() throws Exception {
+        fillPool();
+
+        while (mEngine.getReferenceCount() > 0) {
+            mEngine.release();
+        }
+
+        assertEquals(0, mEngine.getBitmapPool().getCurrentBytes());
+        FrostEngine.acquire(RuntimeEnvironment.application);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releaseWithoutReference_isRejected() throws Exception {
+        while (mEngine.getReferenceCount() > 0) {
+            mEngine.release();
+        }
+
+        try {
+            mEngine.release();
+        } finally {
+            FrostEngine.acquire(RuntimeEnvironment.application);
+        }
+    }
+
+    @Test
+    public void trimMemoryModerate_clearsPool() throws Exception {
+        fillPool();
+
+        mEngine.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+
+        assertEquals(0, mEngine.getBitmapPool().getCurrentBytes());
+    }
+
+    @Test
+    public void trimMemoryLow_keepsBackendsUsable() throws Exception {
+        FrostBackend backend = mEngine.getBackend(FrostEngine.Backend.JAVA);
+        Bitmap bitmap = Bitmap.createBitmap(20, 10, Bitmap.Config.ARGB_8888);
+        fillPool();
+
+        mEngine.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+        assertEquals(0, mEngine.getBitmapPool().getCurrentBytes());
+        assertSame(backend, mEngine.getBackend(FrostEngine.Backend.JAVA));
+        assertSame(bitmap, backend.frost(bitmap, bitmap, 2));
+    }
+}
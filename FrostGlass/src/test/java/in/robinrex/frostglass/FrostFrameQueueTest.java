@@ -0,0 +1,125 @@
+package in.robinrex.frostglass;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FrostFrameQueue}.
+ */
+public class FrostFrameQueueTest {
+
+    /**
+     * A queue whose clock advances by the cost of every callback it runs.
+     */
+    private static class TestQueue extends FrostFrameQueue<String> {
+
+        final List<String> ran = new ArrayList<>();
+
+        long time;
+
+        long cost;
+
+        TestQueue(long budgetNanos) {
+            super(budgetNanos);
+        }
+
+        @Override
+        void dispatch(String callback, long frameTimeNanos) {
+            ran.add(callback);
+            time += cost;
+        }
+
+        @Override
+        long now() {
+            return time;
+        }
+    }
+
+    @Test
+    public void callbacks_runByPriorityThenPostOrder() throws Exception {
+        TestQueue queue = new TestQueue(100);
+        queue.post("low", -1);
+        queue.post("first", 0);
+        queue.post("high", 5);
+        queue.post("second", 0);
+
+        assertEquals(4, queue.run(0));
+        assertEquals(Arrays.asList("high", "first", "second", "low"), queue.ran);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void overBudget_defersLowerPrioritiesToTheNextFrame() throws Exception {
+        TestQueue queue = new TestQueue(100);
+        queue.cost = 60;
+        queue.post("a", 2);
+        queue.post("b", 1);
+        queue.post("c", 0);
+
+        assertEquals(2, queue.run(0));
+        assertEquals(Arrays.asList("a", "b"), queue.ran);
+
+        queue.ran.clear();
+        queue.post("a", 2);
+        queue.post("d", 0);
+        queue.run(1);
+
+        // The deferred callback runs before the one posted later with the same priority.
+        assertEquals(Arrays.asList("a", "c"), queue.ran);
+    }
+
+    @Test
+    public void deferredCallbacks_doNotStarve() throws Exception {
+        TestQueue queue = new TestQueue(100);
+        queue.cost = 200;
+        queue.post("low", 0);
+
+        for (int frame = 0; frame <= FrostFrameQueue.MAX_DEFERRED_FRAMES; frame++) {
+            queue.post("high", 1);
+            queue.run(frame);
+        }
+
+        assertTrue(queue.ran.contains("low"));
+    }
+
+    @Test
+    public void removedCallbacks_doNotRun() throws Exception {
+        final TestQueue queue = new TestQueue(100) {
+            @Override
+            void dispatch(String callback, long frameTimeNanos) {
+                super.dispatch(callback, frameTimeNanos);
+                remove("b");
+            }
+        };
+        queue.post("a", 1);
+        queue.post("b", 0);
+        queue.post("c", 0);
+        queue.remove("c");
+
+        queue.run(0);
+
+        assertEquals(Arrays.asList("a"), queue.ran);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void callbacksPostedWhileRunning_runOnTheNextFrame() throws Exception {
+        final TestQueue queue = new TestQueue(100) {
+            @Override
+            void dispatch(String callback, long frameTimeNanos) {
+                super.dispatch(callback, frameTimeNanos);
+                post(callback, 0);
+            }
+        };
+        queue.post("live", 0);
+
+        assertEquals(1, queue.run(0));
+        assertFalse(queue.isEmpty());
+        assertEquals(1, queue.run(1));
+    }
+}
@@ -0,0 +1,73 @@
+package in.robinrex.frostglass;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FrostMetrics}.
+ */
+public class FrostMetricsTest {
+
+    @Test
+    public void percentiles_areComputedOverRecordedSamples() throws Exception {
+        FrostMetrics metrics = new FrostMetrics();
+        for (int i = 1; i <= 100; i++) {
+            metrics.record(FrostMetrics.Stage.BLUR, i);
+        }
+
+        assertEquals(50, metrics.getPercentileNanos(FrostMetrics.Stage.BLUR, 50));
+        assertEquals(95, metrics.getPercentileNanos(FrostMetrics.Stage.BLUR, 95));
+        assertEquals(99, metrics.getPercentileNanos(FrostMetrics.Stage.BLUR, 99));
+        assertEquals(100, metrics.getLastNanos(FrostMetrics.Stage.BLUR));
+        assertEquals(0, metrics.getPercentileNanos(FrostMetrics.Stage.CAPTURE, 50));
+    }
+
+    @Test
+    public void oldSamples_leaveTheWindow() throws Exception {
+        FrostMetrics metrics = new FrostMetrics();
+        for (int i = 0; i < FrostMetrics.WINDOW_SIZE; i++) {
+            metrics.record(FrostMetrics.Stage.DRAW, 1000);
+        }
+        for (int i = 0; i < FrostMetrics.WINDOW_SIZE; i++) {
+            metrics.record(FrostMetrics.Stage.DRAW, 10);
+        }
+
+        assertEquals(10, metrics.getPercentileNanos(FrostMetrics.Stage.DRAW, 99));
+    }
+
+    @Test
+    public void listeners_areNotifiedUntilRemoved() throws Exception {
+        final FrostMetrics metrics = new FrostMetrics();
+        final int[] calls = new int[1];
+        FrostMetrics.Listener listener = new FrostMetrics.Listener() {
+            @Override
+            public void onFrameCompleted(FrostMetrics completed) {
+                assertSame(metrics, completed);
+                calls[0]++;
+            }
+        };
+
+        metrics.addListener(listener);
+        metrics.frameCompleted();
+        metrics.removeListener(listener);
+        metrics.frameCompleted();
+
+        assertEquals(1, calls[0]);
+        assertEquals(2, metrics.getFrameCount());
+    }
+
+    @Test
+    public void reset_clearsSamplesAndCounters() throws Exception {
+        FrostMetrics metrics = new FrostMetrics();
+        metrics.record(FrostMetrics.Stage.UPLOAD, 42);
+        metrics.recordSkippedFrame();
+        metrics.frameCompleted();
+
+        metrics.reset();
+
+        assertEquals(0, metrics.getPercentileNanos(FrostMetrics.Stage.UPLOAD, 50));
+        assertEquals(0, metrics.getSkippedFrameCount());
+        assertEquals(0, metrics.getFrameCount());
+    }
+}
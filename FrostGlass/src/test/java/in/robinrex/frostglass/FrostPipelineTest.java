@@ -0,0 +1,133 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Robolectric tests for the buffers and the generations of {@link FrostPipeline}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class FrostPipelineTest {
+
+    /**
+     * A backend that only records the bitmaps it is given.
+     */
+    private static class RecordingBackend implements FrostBackend {
+
+        final List<Bitmap> frosted = new ArrayList<>();
+
+        int overlayColor;
+
+        @Override
+        public Bitmap frost(Bitmap input, Bitmap output, int radius) {
+            return frost(input, output, radius, Color.TRANSPARENT);
+        }
+
+        @Override
+        public synchronized Bitmap frost(Bitmap input, Bitmap output, int radius, int overlayColor) {
+            frosted.add(output);
+            this.overlayColor = overlayColor;
+            return output;
+        }
+
+        @Override
+        public int getMaxRadius() {
+            return 25;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    private FrostBitmapPool mPool;
+
+    private FrostPipeline mPipeline;
+
+    private RecordingBackend mBackend;
+
+    @Before
+    public void setUp() throws Exception {
+        mPool = new FrostBitmapPool();
+        mPipeline = new FrostPipeline(mPool);
+        mBackend = new RecordingBackend();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mPipeline.quit();
+    }
+
+    /**
+     * Swaps until the frame in flight has been collected, whether it was published or dropped.
+     */
+    private Bitmap awaitSwap() throws Exception {
+        Bitmap front = mPipeline.swap();
+        for (int i = 0; i < 200 && mPipeline.isInFlight(); i++) {
+            Thread.sleep(5);
+            front = mPipeline.swap();
+        }
+
+        assertFalse(mPipeline.isInFlight());
+        return front;
+    }
+
+    @Test
+    public void submittedFrame_isPublishedAsFront() throws Exception {
+        Bitmap back = mPipeline.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888);
+        mPipeline.submit(4, mBackend, Color.RED);
+
+        assertSame(back, awaitSwap());
+        assertEquals(1, mBackend.frosted.size());
+        assertSame(back, mBackend.frosted.get(0));
+        assertEquals(Color.RED, mBackend.overlayColor);
+
+        // The next frame is captured into the other buffer, while the published one is displayed.
+        assertNotSame(back, mPipeline.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888));
+        assertSame(back, mPipeline.detachFront());
+    }
+
+    @Test
+    public void invalidatedFrame_isDropped() throws Exception {
+        mPipeline.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888);
+        mPipeline.submit(4, mBackend, Color.RED);
+        mPipeline.invalidate();
+
+        assertNull(awaitSwap());
+        assertNull(mPipeline.detachFront());
+    }
+
+    @Test
+    public void frameAfterInvalidation_isPublished() throws Exception {
+        mPipeline.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888);
+        mPipeline.submit(4, mBackend, Color.RED);
+        mPipeline.invalidate();
+        assertNull(awaitSwap());
+
+        Bitmap back = mPipeline.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888);
+        mPipeline.submit(4, mBackend, Color.RED);
+
+        assertSame(back, awaitSwap());
+    }
+
+    @Test(expected = FGException.class)
+    public void captureWhileInFlight_isRejected() throws Exception {
+        mPipeline.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888);
+        mPipeline.submit(4, mBackend, Color.RED);
+
+        mPipeline.obtainBackBuffer(20, 10, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,61 @@
+package in.robinrex.frostglass;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the pixel conversions of {@link FrostPixels}.
+ */
+public class FrostPixelsTest {
+
+    @Test
+    public void premultiply_scalesColorByAlpha() throws Exception {
+        assertEquals(0x80804020, FrostPixels.premultiply(0x80FF8040));
+        assertEquals(0xFF336699, FrostPixels.premultiply(0xFF336699));
+        assertEquals(0, FrostPixels.premultiply(0x00FF0000));
+    }
+
+    @Test
+    public void unpremultiply_restoresColor() throws Exception {
+        for (int alpha = 0; alpha <= 255; alpha += 15) {
+            for (int channel = 0; channel <= 255; channel += 5) {
+                int color = alpha << 24 | channel << 16 | (255 - channel) << 8 | channel / 2;
+                int restored = FrostPixels.unpremultiply(FrostPixels.premultiply(color));
+
+                if (alpha == 0) {
+                    assertEquals(0, restored);
+                } else {
+                    // Premultiplying loses the precision the alpha does not have.
+                    for (int shift = 0; shift < 32; shift += 8) {
+                        assertEquals((color >>> shift) & 0xFF, (restored >>> shift) & 0xFF, 255f / alpha);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void swapRedBlue_keepsAlphaAndGreen() throws Exception {
+        assertEquals(0x80563412, FrostPixels.swapRedBlue(0x80123456));
+        assertEquals(0x80123456, FrostPixels.swapRedBlue(FrostPixels.swapRedBlue(0x80123456)));
+    }
+
+    @Test
+    public void transparentNeighbours_doNotBleedTheirColor() throws Exception {
+        int width = 20, height = 1;
+        int[] pixels = new int[width * height];
+        for (int x = 0; x < width; x++) {
+            pixels[x] = FrostPixels.premultiply(x < width / 2 ? 0xFFFFFFFF : 0x00FF0000);
+        }
+
+        new StackBlur(1).blur(pixels, width, height, 4);
+
+        for (int pixel : pixels) {
+            int color = FrostPixels.unpremultiply(pixel);
+            if (color != 0) {
+                assertEquals(0xFFFFFF, color & 0xFFFFFF);
+            }
+        }
+    }
+}
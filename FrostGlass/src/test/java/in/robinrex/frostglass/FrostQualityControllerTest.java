@@ -0,0 +1,73 @@
+package in.robinrex.frostglass;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FrostQualityController}.
+ */
+public class FrostQualityControllerTest {
+
+    private static final long BUDGET = 4000000;
+
+    @Test
+    public void initialFactor_isRoundedUpToTheLadder() throws Exception {
+        assertEquals(8, new FrostQualityController(BUDGET, 8).getDownsampleFactor());
+        assertEquals(12, new FrostQualityController(BUDGET, 10).getDownsampleFactor());
+        assertEquals(32, new FrostQualityController(BUDGET, 100).getDownsampleFactor());
+    }
+
+    @Test
+    public void slowFrames_raiseTheFactorOnceSettled() throws Exception {
+        FrostQualityController controller = new FrostQualityController(BUDGET, 4);
+
+        for (int i = 0; i < FrostQualityController.SETTLE_FRAMES - 1; i++) {
+            assertFalse(controller.onFrameMeasured(2 * BUDGET));
+        }
+
+        assertTrue(controller.onFrameMeasured(2 * BUDGET));
+        assertEquals(6, controller.getDownsampleFactor());
+    }
+
+    @Test
+    public void framesNearTheBudget_keepTheFactor() throws Exception {
+        FrostQualityController controller = new FrostQualityController(BUDGET, 4);
+
+        // Lowering to 3 would cost (4 / 3)^2 more, which would no longer fit.
+        for (int i = 0; i < 10 * FrostQualityController.SETTLE_FRAMES; i++) {
+            assertFalse(controller.onFrameMeasured(BUDGET / 2));
+        }
+
+        assertEquals(4, controller.getDownsampleFactor());
+    }
+
+    @Test
+    public void fastFrames_lowerTheFactor() throws Exception {
+        FrostQualityController controller = new FrostQualityController(BUDGET, 4);
+
+        for (int i = 0; i < FrostQualityController.SETTLE_FRAMES; i++) {
+            controller.onFrameMeasured(BUDGET / 10);
+        }
+
+        assertEquals(3, controller.getDownsampleFactor());
+    }
+
+    @Test
+    public void singleSlowFrame_doesNotChangeTheFactor() throws Exception {
+        FrostQualityController controller = new FrostQualityController(BUDGET, 4);
+
+        for (int i = 0; i < 2 * FrostQualityController.SETTLE_FRAMES; i++) {
+            long frameNanos = i == FrostQualityController.SETTLE_FRAMES ? 3 * BUDGET : BUDGET / 2;
+            assertFalse(controller.onFrameMeasured(frameNanos));
+        }
+    }
+
+    @Test
+    public void scaledRadius_keepsTheBlurSizeOnScreen() throws Exception {
+        FrostQualityController controller = new FrostQualityController(BUDGET, 16);
+
+        assertEquals(8, controller.scaleRadius(16, 8));
+        assertEquals(1, controller.scaleRadius(1, 8));
+    }
+}
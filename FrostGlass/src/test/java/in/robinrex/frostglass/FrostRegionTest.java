@@ -0,0 +1,49 @@
+package in.robinrex.frostglass;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FrostRegion}.
+ */
+public class FrostRegionTest {
+
+    @Test
+    public void region_coversTheGlassAndItsHalo() throws Exception {
+        FrostRegion region = new FrostRegion();
+        region.set(100, 400, 200, 56, 24, 1080, 1920, 8);
+
+        assertTrue(region.left <= 100 - 24);
+        assertTrue(region.top <= 400 - 24);
+        assertTrue(region.left + region.width >= 100 + 200 + 24);
+        assertTrue(region.top + region.height >= 400 + 56 + 24);
+        assertEquals(0, region.left % 8);
+        assertEquals(0, region.top % 8);
+    }
+
+    @Test
+    public void region_isShiftedInsideTheSource() throws Exception {
+        FrostRegion region = new FrostRegion();
+        region.set(1000, 1900, 80, 20, 24, 1080, 1920, 8);
+        int width = region.width, height = region.height;
+
+        assertTrue(region.left + region.width <= 1080);
+        assertTrue(region.top + region.height <= 1920);
+
+        region.set(500, 900, 80, 20, 24, 1080, 1920, 8);
+        assertEquals(width, region.width);
+        assertEquals(height, region.height);
+    }
+
+    @Test
+    public void region_neverExceedsTheSource() throws Exception {
+        FrostRegion region = new FrostRegion();
+        region.set(-50, -50, 2000, 3000, 24, 1080, 1920, 8);
+
+        assertEquals(0, region.left);
+        assertEquals(0, region.top);
+        assertEquals(1080, region.width);
+        assertEquals(1920, region.height);
+    }
+}
@@ -0,0 +1,157 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Robolectric tests for the cancellation and the delivery of {@link FrostRequest}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class FrostRequestTest {
+
+    /**
+     * A backend that only counts the bitmaps it is given.
+     */
+    private static class CountingBackend implements FrostBackend {
+
+        int frosts;
+
+        @Override
+        public Bitmap frost(Bitmap input, Bitmap output, int radius) {
+            return frost(input, output, radius, Color.TRANSPARENT);
+        }
+
+        @Override
+        public Bitmap frost(Bitmap input, Bitmap output, int radius, int overlayColor) {
+            frosts++;
+            return output;
+        }
+
+        @Override
+        public int getMaxRadius() {
+            return 25;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    /**
+     * A callback that records the bitmaps delivered to it.
+     */
+    private static class RecordingCallback implements FrostCallback {
+
+        final List<Bitmap> delivered = new ArrayList<>();
+
+        @Override
+        public void onFrosted(Bitmap frosted) {
+            delivered.add(frosted);
+        }
+    }
+
+    private FrostEngine mEngine;
+
+    private CountingBackend mBackend;
+
+    private RecordingCallback mCallback;
+
+    private Bitmap mCapture;
+
+    private FrostRequest mRequest;
+
+    @Before
+    public void setUp() throws Exception {
+        mEngine = FrostEngine.acquire(RuntimeEnvironment.application);
+        mBackend = new CountingBackend();
+        mCallback = new RecordingCallback();
+        mCapture = mEngine.getBitmapPool().acquire(20, 10, Bitmap.Config.ARGB_8888);
+        mRequest = new FrostRequest(mEngine, mCapture, 4, mBackend, mCallback);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ShadowLooper.unPauseMainLooper();
+        mEngine.release();
+    }
+
+    /**
+     * @return True if the capture is back in the pool, which then hands it out again.
+     */
+    private boolean isCaptureReleased() {
+        return mEngine.getBitmapPool().acquire(20, 10, Bitmap.Config.ARGB_8888) == mCapture;
+    }
+
+    @Test
+    public void completedRequest_deliversOnMainThread() throws Exception {
+        mRequest.run();
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(1, mBackend.frosts);
+        assertEquals(1, mCallback.delivered.size());
+        assertSame(mCapture, mCallback.delivered.get(0));
+        assertSame(mCapture, mRequest.get());
+        assertFalse(isCaptureReleased());
+    }
+
+    @Test
+    public void cancelBeforeStart_releasesCapture() throws Exception {
+        assertTrue(mRequest.cancel(false));
+        mRequest.run();
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(0, mBackend.frosts);
+        assertTrue(mCallback.delivered.isEmpty());
+        assertTrue(isCaptureReleased());
+    }
+
+    @Test
+    public void supersedeBeforeStart_releasesCapture() throws Exception {
+        mRequest.supersede();
+        mRequest.run();
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(0, mBackend.frosts);
+        assertTrue(mCallback.delivered.isEmpty());
+        assertTrue(isCaptureReleased());
+    }
+
+    @Test
+    public void supersedeBeforeDelivery_releasesResult() throws Exception {
+        // The blur is done, but its delivery still waits on the main thread.
+        ShadowLooper.pauseMainLooper();
+        mRequest.run();
+        mRequest.supersede();
+        ShadowLooper.unPauseMainLooper();
+        ShadowLooper.runUiThreadTasks();
+
+        assertEquals(1, mBackend.frosts);
+        assertTrue(mCallback.delivered.isEmpty());
+        assertTrue(isCaptureReleased());
+    }
+
+    @Test
+    public void cancelledRequest_releasesCaptureOnce() throws Exception {
+        mRequest.cancel(false);
+        mRequest.cancel(false);
+        mRequest.supersede();
+
+        // A second release of the capture would be rejected by the pool.
+        assertTrue(isCaptureReleased());
+    }
+}
@@ -0,0 +1,138 @@
+package in.robinrex.frostglass;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+/**
+ * Robolectric tests for storing and matching the snapshots of {@link FrostSnapshotCache}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class FrostSnapshotCacheTest {
+
+    private static final String KEY = "TestActivity-80x40";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private FrostSnapshotCache mCache;
+
+    private FrostBitmapPool mPool;
+
+    @Before
+    public void setUp() throws Exception {
+        mCache = new FrostSnapshotCache(mFolder.getRoot());
+        mPool = new FrostBitmapPool();
+    }
+
+    private File snapshotFile() {
+        return new File(new File(mFolder.getRoot(), "frost_snapshots"), KEY);
+    }
+
+    /**
+     * Writes the given bytes where the snapshot of the key is stored.
+     */
+    private void writeSnapshotFile(byte[] bytes) throws Exception {
+        assertTrue(snapshotFile().getParentFile().mkdirs());
+
+        FileOutputStream output = new FileOutputStream(snapshotFile());
+        try {
+            output.write(bytes);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Saves a snapshot and waits for it to be written by the background thread.
+     */
+    private Bitmap saveSnapshot() throws Exception {
+        Bitmap bitmap = Bitmap.createBitmap(20, 10, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.BLUE);
+        bitmap.setPixel(3, 4, Color.RED);
+        mCache.save(KEY, bitmap);
+
+        File file = snapshotFile();
+        for (int i = 0; i < 200 && !file.isFile(); i++) {
+            Thread.sleep(5);
+        }
+
+        assertTrue(file.isFile());
+        return bitmap;
+    }
+
+    @Test
+    public void savedSnapshot_isLoadedBack() throws Exception {
+        Bitmap saved = saveSnapshot();
+
+        Bitmap loaded = mCache.load(KEY, 20, 10, Bitmap.Config.ARGB_8888, mPool);
+
+        assertNotNull(loaded);
+        assertNotSame(saved, loaded);
+        assertEquals(Color.RED, loaded.getPixel(3, 4));
+        assertEquals(Color.BLUE, loaded.getPixel(0, 0));
+    }
+
+    @Test
+    public void missingSnapshot_isNotLoaded() throws Exception {
+        assertNull(mCache.load(KEY, 20, 10, Bitmap.Config.ARGB_8888, mPool));
+    }
+
+    @Test
+    public void snapshotOfOtherSize_isNotLoaded() throws Exception {
+        saveSnapshot();
+
+        assertNull(mCache.load(KEY, 10, 20, Bitmap.Config.ARGB_8888, mPool));
+        assertNull(mCache.load(KEY, 20, 5, Bitmap.Config.ARGB_8888, mPool));
+        assertEquals(0, mPool.getMissCount());
+    }
+
+    @Test
+    public void snapshotOfOtherConfig_isNotLoaded() throws Exception {
+        saveSnapshot();
+
+        assertNull(mCache.load(KEY, 20, 10, Bitmap.Config.RGB_565, mPool));
+    }
+
+    @Test
+    public void snapshotWithMissingPixels_isNotLoaded() throws Exception {
+        saveSnapshot();
+
+        RandomAccessFile file = new RandomAccessFile(snapshotFile(), "rw");
+        try {
+            file.setLength(file.length() - 4);
+        } finally {
+            file.close();
+        }
+
+        assertNull(mCache.load(KEY, 20, 10, Bitmap.Config.ARGB_8888, mPool));
+    }
+
+    @Test
+    public void fileWithoutHeader_isNotLoaded() throws Exception {
+        writeSnapshotFile(new byte[20 * 10 * 4 + 24]);
+
+        assertNull(mCache.load(KEY, 20, 10, Bitmap.Config.ARGB_8888, mPool));
+    }
+
+    @Test
+    public void truncatedFile_isNotLoaded() throws Exception {
+        writeSnapshotFile(new byte[8]);
+
+        assertNull(mCache.load(KEY, 20, 10, Bitmap.Config.ARGB_8888, mPool));
+    }
+}
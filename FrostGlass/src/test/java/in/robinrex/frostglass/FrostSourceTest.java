@@ -0,0 +1,145 @@
+package in.robinrex.frostglass;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Robolectric tests for the capture shared by the glass views of a {@link FrostSource}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class FrostSourceTest {
+
+    /**
+     * A source view that counts how many times it is captured.
+     */
+    private static class CountingView extends View {
+
+        int draws;
+
+        CountingView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public void draw(Canvas canvas) {
+            draws++;
+            super.draw(canvas);
+        }
+    }
+
+    private FrostEngine mEngine;
+
+    private CountingView mView;
+
+    private FrostSource mSource;
+
+    private View mFirstGlass, mSecondGlass;
+
+    @Before
+    public void setUp() throws Exception {
+        final Context context = RuntimeEnvironment.application;
+        mEngine = FrostEngine.acquire(context);
+
+        mView = new CountingView(context);
+        mView.setBackgroundColor(Color.RED);
+        mView.layout(0, 0, 100, 100);
+
+        mFirstGlass = new View(context);
+        mFirstGlass.layout(0, 0, 40, 40);
+        mSecondGlass = new View(context);
+        mSecondGlass.layout(60, 60, 100, 100);
+
+        mSource = FrostSource.of(mView);
+        mSource.setFrostBackend(mEngine.getBackend(FrostEngine.Backend.JAVA));
+        mSource.setDownsampleFactor(4);
+        mSource.setBlurRadius(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mSource.detach(mFirstGlass);
+        mSource.detach(mSecondGlass);
+        mEngine.release();
+    }
+
+    @Test
+    public void of_returnsSameSourceForView() throws Exception {
+        assertSame(mSource, FrostSource.of(mView));
+    }
+
+    @Test
+    public void twoGlasses_captureOncePerFrame() throws Exception {
+        mSource.attach(mFirstGlass);
+        mSource.attach(mSecondGlass);
+
+        // Both glass views render in the same frame, before the next vsync marks the source dirty again.
+        assertTrue(mSource.update());
+        assertTrue(mSource.update());
+
+        assertEquals(1, mView.draws);
+
+        Canvas canvas = new Canvas(Bitmap.createBitmap(40, 40, Bitmap.Config.ARGB_8888));
+        mSource.draw(canvas, mFirstGlass);
+        mSource.draw(canvas, mSecondGlass);
+    }
+
+    @Test
+    public void twoGlasses_shareOneSetOfBuffers() throws Exception {
+        mSource.attach(mFirstGlass);
+        mSource.attach(mSecondGlass);
+
+        FrostBitmapPool pool = mEngine.getBitmapPool();
+        int acquired = pool.getMissCount() + pool.getHitCount();
+        mSource.update();
+
+        assertEquals(acquired + 2, pool.getMissCount() + pool.getHitCount());
+    }
+
+    @Test
+    public void changedSettings_captureAgain() throws Exception {
+        mSource.attach(mFirstGlass);
+        mSource.update();
+
+        mSource.setBlurRadius(3);
+        mSource.update();
+
+        assertEquals(2, mView.draws);
+    }
+
+    @Test
+    public void withoutGlasses_nothingIsCaptured() throws Exception {
+        assertFalse(mSource.update());
+        assertEquals(0, mView.draws);
+    }
+
+    @Test
+    public void lastGlassDetached_releasesBuffers() throws Exception {
+        mSource.attach(mFirstGlass);
+        mSource.attach(mSecondGlass);
+        mSource.update();
+
+        FrostBitmapPool pool = mEngine.getBitmapPool();
+        long pooled = pool.getCurrentBytes();
+
+        mSource.detach(mFirstGlass);
+        assertEquals(pooled, pool.getCurrentBytes());
+
+        mSource.detach(mSecondGlass);
+        assertTrue(pool.getCurrentBytes() > pooled);
+        assertFalse(mSource.update());
+    }
+}
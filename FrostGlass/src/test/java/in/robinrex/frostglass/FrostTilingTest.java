@@ -0,0 +1,102 @@
+package in.robinrex.frostglass;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link FrostTiling}.
+ */
+public class FrostTilingTest {
+
+    @Test
+    public void tiles_coverTheImageExactlyOnce() throws Exception {
+        FrostTiling tiling = new FrostTiling(250, 130, 64, 10);
+        int[] coverage = new int[250 * 130];
+        FrostTiling.Tile tile = new FrostTiling.Tile();
+
+        for (int i = 0; i < tiling.getTileCount(); i++) {
+            tiling.getTile(i, tile);
+            for (int y = tile.top; y < tile.top + tile.height; y++) {
+                for (int x = tile.left; x < tile.left + tile.width; x++) {
+                    coverage[y * 250 + x]++;
+                }
+            }
+        }
+
+        for (int count : coverage) {
+            assertEquals(1, count);
+        }
+    }
+
+    @Test
+    public void capture_coversTheTileAndItsHaloInsideTheImage() throws Exception {
+        FrostTiling tiling = new FrostTiling(250, 130, 64, 10);
+        FrostTiling.Tile tile = new FrostTiling.Tile();
+
+        for (int i = 0; i < tiling.getTileCount(); i++) {
+            tiling.getTile(i, tile);
+
+            assertTrue(tile.captureLeft >= 0);
+            assertTrue(tile.captureTop >= 0);
+            assertTrue(tile.captureLeft + tiling.captureWidth <= 250);
+            assertTrue(tile.captureTop + tiling.captureHeight <= 130);
+            assertTrue(tile.captureLeft <= Math.max(0, tile.left - 10));
+            assertTrue(tile.captureTop <= Math.max(0, tile.top - 10));
+            assertTrue(tile.captureLeft + tiling.captureWidth >= Math.min(250, tile.left + tile.width + 10));
+            assertTrue(tile.captureTop + tiling.captureHeight >= Math.min(130, tile.top + tile.height + 10));
+        }
+    }
+
+    @Test
+    public void capture_neverExceedsTheImage() throws Exception {
+        FrostTiling tiling = new FrostTiling(40, 30, 64, 10);
+
+        assertEquals(1, tiling.getTileCount());
+        assertEquals(40, tiling.captureWidth);
+        assertEquals(30, tiling.captureHeight);
+    }
+
+    @Test
+    public void stitchedTiles_matchTheWholeBlur() throws Exception {
+        int width = 150, height = 110, radius = 6;
+        int[] image = new int[width * height];
+        Random random = new Random(23);
+        for (int i = 0; i < image.length; i++) {
+            image[i] = random.nextInt();
+        }
+
+        StackBlur stackBlur = new StackBlur(1);
+        int[] expected = image.clone();
+        stackBlur.blur(expected, width, height, radius);
+
+        FrostTiling tiling = new FrostTiling(width, height, 32, radius);
+        FrostTiling.Tile tile = new FrostTiling.Tile();
+        int[] capture = new int[tiling.captureWidth * tiling.captureHeight];
+        int[] stitched = new int[width * height];
+
+        for (int i = 0; i < tiling.getTileCount(); i++) {
+            tiling.getTile(i, tile);
+            for (int y = 0; y < tiling.captureHeight; y++) {
+                System.arraycopy(image, (tile.captureTop + y) * width + tile.captureLeft, capture,
+                        y * tiling.captureWidth, tiling.captureWidth);
+            }
+
+            stackBlur.blur(capture, tiling.captureWidth, tiling.captureHeight, radius);
+
+            for (int y = tile.top; y < tile.top + tile.height; y++) {
+                System.arraycopy(capture, (y - tile.captureTop) * tiling.captureWidth + tile.left - tile.captureLeft,
+                        stitched, y * width + tile.left, tile.width);
+            }
+        }
+
+        assertArrayEquals(expected, stitched);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyTiles_areRejected() throws Exception {
+        new FrostTiling(100, 100, 0, 4);
+    }
+}
@@ -0,0 +1,226 @@
+package in.robinrex.frostglass;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link KawaseBlur}.
+ */
+public class KawaseBlurTest {
+
+    @Test
+    public void uniformImage_isUnchanged() throws Exception {
+        int[] pixels = new int[41 * 29];
+        Arrays.fill(pixels, 0xFF336699);
+
+        new KawaseBlur().blur(pixels, 41, 29, 40);
+
+        for (int pixel : pixels) {
+            assertEquals(0xFF336699, pixel);
+        }
+    }
+
+    @Test
+    public void radiusZero_isNoOp() throws Exception {
+        int[] pixels = randomPixels(16 * 16, 1);
+        int[] original = pixels.clone();
+
+        new KawaseBlur().blur(pixels, 16, 16, 0);
+
+        assertArrayEquals(original, pixels);
+    }
+
+    @Test
+    public void blur_matchesReferenceFilters() throws Exception {
+        int width = 37, height = 23;
+        int[] pixels = randomPixels(width * height, 6);
+        for (int i = 0; i < pixels.length; i += 3) {
+            pixels[i] &= 0x7FFFFFFF;
+        }
+        int[] expected = referenceBlur(pixels, width, height);
+
+        new KawaseBlur().blur(pixels, width, height, 1);
+
+        assertArrayEquals(expected, pixels);
+    }
+
+    @Test
+    public void blur_keepsTheAverageColor() throws Exception {
+        int width = 64, height = 48;
+        int[] pixels = randomPixels(width * height, 2);
+        double before = averageRed(pixels);
+
+        new KawaseBlur().blur(pixels, width, height, 12);
+
+        assertEquals(before, averageRed(pixels), 2);
+    }
+
+    @Test
+    public void blur_softensLikeAStackBlurOfTheSameRadius() throws Exception {
+        for (int radius : new int[]{8, 40, 100}) {
+            int[] kawase = edge(1024, 8);
+            int[] stack = kawase.clone();
+
+            new KawaseBlur().blur(kawase, 1024, 8, radius);
+            new StackBlur(1).blur(stack, 1024, 8, radius);
+
+            double ratio = edgeWidth(kawase, 1024, 8) / edgeWidth(stack, 1024, 8);
+            assertTrue("Radius " + radius + " is " + ratio + " times as soft.", ratio > 0.65 && ratio < 1.5);
+        }
+    }
+
+    @Test
+    public void iterations_growWithTheLogarithmOfTheRadius() throws Exception {
+        assertEquals(1, KawaseBlur.getIterations(1));
+        assertEquals(4, KawaseBlur.getIterations(40));
+        assertEquals(5, KawaseBlur.getIterations(80));
+        assertEquals(KawaseBlur.MAX_ITERATIONS, KawaseBlur.getIterations(KawaseBlur.MAX_RADIUS));
+    }
+
+    @Test
+    public void opaqueOverlay_coversTheBlur() throws Exception {
+        int[] pixels = randomPixels(20 * 20, 3);
+
+        new KawaseBlur().blur(pixels, 20, 20, 6, 0xFF102030);
+
+        for (int pixel : pixels) {
+            assertEquals(0xFF102030, pixel);
+        }
+    }
+
+    @Test
+    public void tinyImages_areBlurred() throws Exception {
+        KawaseBlur kawaseBlur = new KawaseBlur();
+
+        int[] single = {0xFF336699};
+        kawaseBlur.blur(single, 1, 1, 64);
+        assertEquals(0xFF336699, single[0]);
+
+        int[] row = {0xFF000000, 0xFFFFFFFF, 0xFF000000};
+        kawaseBlur.blur(row, 3, 1, 64);
+        assertEquals(row[0], row[2]);
+        assertTrue((row[1] & 0xFF) < 0xFF);
+    }
+
+    @Test
+    public void reusedInstance_blursAnySize() throws Exception {
+        KawaseBlur kawaseBlur = new KawaseBlur();
+        int[] large = randomPixels(90 * 70, 4);
+        int[] small = randomPixels(15 * 11, 5);
+        int[] expected = small.clone();
+
+        kawaseBlur.blur(large, 90, 70, 60);
+        kawaseBlur.blur(small, 15, 11, 10);
+        new KawaseBlur().blur(expected, 15, 11, 10);
+
+        assertArrayEquals(expected, small);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void tooSmallArray_isRejected() throws Exception {
+        new KawaseBlur().blur(new int[10], 5, 5, 3);
+    }
+
+    /**
+     * One halving and one doubling, computed channel by channel with the weights written out.
+     */
+    private static int[] referenceBlur(int[] pixels, int width, int height) {
+        int[] down = {1, 1, 1, 1, 1, 5, 5, 1, 1, 5, 5, 1, 1, 1, 1, 1};
+        int[] up = {0, 1, 3, 0, 1, 24, 34, 9, 3, 34, 38, 17, 0, 9, 17, 2};
+        int halfWidth = (width + 1) / 2, halfHeight = (height + 1) / 2;
+        int[] half = new int[halfWidth * halfHeight];
+        int[] result = new int[width * height];
+
+        for (int y = 0; y < halfHeight; y++) {
+            for (int x = 0; x < halfWidth; x++) {
+                int pixel = 0;
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int sum = 0;
+                    for (int j = 0; j < 4; j++) {
+                        for (int i = 0; i < 4; i++) {
+                            int source = pixels[clamp(2 * y - 1 + j, height) * width + clamp(2 * x - 1 + i, width)];
+                            sum += ((source >>> shift) & 0xFF) * down[j * 4 + i];
+                        }
+                    }
+                    pixel |= (sum + 16) / 32 << shift;
+                }
+                half[y * halfWidth + x] = pixel;
+            }
+        }
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int pixel = 0;
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int sum = 0;
+                    for (int j = 0; j < 4; j++) {
+                        int row = clamp(y % 2 == 0 ? y / 2 - 2 + j : y / 2 + 2 - j, halfHeight);
+                        for (int i = 0; i < 4; i++) {
+                            int column = clamp(x % 2 == 0 ? x / 2 - 2 + i : x / 2 + 2 - i, halfWidth);
+                            sum += ((half[row * halfWidth + column] >>> shift) & 0xFF) * up[j * 4 + i];
+                        }
+                    }
+                    pixel |= (sum + 96) / 192 << shift;
+                }
+                result[y * width + x] = pixel;
+            }
+        }
+
+        return result;
+    }
+
+    private static int clamp(int index, int size) {
+        return Math.max(0, Math.min(index, size - 1));
+    }
+
+    /**
+     * An image black on the left half and white on the right half.
+     */
+    private static int[] edge(int width, int height) {
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = i % width < width / 2 ? 0xFF000000 : 0xFFFFFFFF;
+        }
+        return pixels;
+    }
+
+    /**
+     * The standard deviation of the gradient of the red channel along the rows, which is the width of the blur.
+     */
+    private static double edgeWidth(int[] pixels, int width, int height) {
+        double sum = 0, moment = 0, secondMoment = 0;
+        for (int x = 0; x + 1 < width; x++) {
+            double gradient = 0;
+            for (int y = 0; y < height; y++) {
+                gradient += ((pixels[y * width + x + 1] >> 16) & 0xFF) - ((pixels[y * width + x] >> 16) & 0xFF);
+            }
+            sum += gradient;
+            moment += gradient * x;
+            secondMoment += gradient * x * x;
+        }
+
+        double mean = moment / sum;
+        return Math.sqrt(secondMoment / sum - mean * mean);
+    }
+
+    private static double averageRed(int[] pixels) {
+        double sum = 0;
+        for (int pixel : pixels) {
+            sum += (pixel >> 16) & 0xFF;
+        }
+        return sum / pixels.length;
+    }
+
+    private static int[] randomPixels(int count, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[count];
+        for (int i = 0; i < count; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,148 @@
+package in.robinrex.frostglass;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.Build;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.util.ReflectionHelpers;
+
+import static org.junit.Assert.*;
+
+/**
+ * Robolectric tests for the choice between the platform blur and the bitmap backends.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 25)
+public class RenderEffectFrostTest {
+
+    private int mSdkInt;
+
+    private Context mContext;
+
+    /**
+     * A glass view that reports being drawn by the hardware renderer, which Robolectric views never are.
+     */
+    private static class HardwareView extends View {
+
+        HardwareView(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean isHardwareAccelerated() {
+            return true;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        mSdkInt = Build.VERSION.SDK_INT;
+        mContext = RuntimeEnvironment.application;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", mSdkInt);
+    }
+
+    @Test
+    public void isSupported_requiresApi31AndHardwareAcceleration() throws Exception {
+        assertTrue(RenderEffectFrost.isSupported(31, true));
+        assertTrue(RenderEffectFrost.isSupported(33, true));
+        assertFalse(RenderEffectFrost.isSupported(30, true));
+        assertFalse(RenderEffectFrost.isSupported(31, false));
+    }
+
+    @Test
+    public void olderDevice_usesBitmapBackends() throws Exception {
+        FrostRenderer renderer = new FrostRenderer(new HardwareView(mContext));
+        renderer.setBlurredView(new View(mContext));
+
+        assertFalse(renderer.usesPlatformFrost());
+    }
+
+    @Test
+    public void api31HardwareGlass_usesPlatformFrost() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 31);
+        FrostRenderer renderer = new FrostRenderer(new HardwareView(mContext));
+        renderer.setBlurredView(new View(mContext));
+
+        assertTrue(renderer.usesPlatformFrost());
+    }
+
+    @Test
+    public void api31SoftwareGlass_usesBitmapBackends() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 31);
+        FrostRenderer renderer = new FrostRenderer(new View(mContext));
+        renderer.setBlurredView(new View(mContext));
+
+        assertFalse(renderer.usesPlatformFrost());
+    }
+
+    @Test
+    public void disabledPlatformFrost_usesBitmapBackends() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 31);
+        FrostRenderer renderer = new FrostRenderer(new HardwareView(mContext));
+        renderer.setBlurredView(new View(mContext));
+        renderer.setPlatformFrostEnabled(false);
+
+        assertFalse(renderer.usesPlatformFrost());
+    }
+
+    @Test
+    public void sharedSource_usesBitmapBackends() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 31);
+        FrostRenderer renderer = new FrostRenderer(new HardwareView(mContext));
+        renderer.setSource(FrostSource.of(new View(mContext)));
+
+        assertFalse(renderer.usesPlatformFrost());
+    }
+
+    @Test
+    public void api31SoftwareCanvas_drawsThroughBitmaps() throws Exception {
+        ReflectionHelpers.setStaticField(Build.VERSION.class, "SDK_INT", 31);
+        View glass = new HardwareView(mContext);
+        View blurredView = new View(mContext);
+        blurredView.setBackgroundColor(Color.RED);
+        glass.layout(0, 0, 40, 40);
+        blurredView.layout(0, 0, 40, 40);
+
+        FrostRenderer renderer = new FrostRenderer(glass);
+        renderer.onAttached();
+        try {
+            renderer.setFrostBackend(FrostEngine.getInstance().getBackend(FrostEngine.Backend.JAVA));
+            renderer.setDownsampleFactor(4);
+            renderer.setBlurRadius(2);
+            renderer.setBlurredView(blurredView);
+            renderer.setLive(true);
+            assertTrue(renderer.usesPlatformFrost());
+
+            // The live frame is left to the platform, which cannot draw into a bitmap.
+            assertTrue(renderer.render());
+
+            FrostBitmapPool pool = FrostEngine.getInstance().getBitmapPool();
+            int acquired = pool.getMissCount() + pool.getHitCount();
+            renderer.draw(new Canvas(Bitmap.createBitmap(40, 40, Bitmap.Config.ARGB_8888)));
+
+            assertEquals(acquired + 2, pool.getMissCount() + pool.getHitCount());
+        } finally {
+            renderer.onDetached();
+        }
+    }
+
+    @Test
+    public void missingPlatformClasses_fallBack() throws Exception {
+        // The platform classes do not exist on the SDK the tests run against.
+        assertNull(RenderEffectFrost.create());
+    }
+}
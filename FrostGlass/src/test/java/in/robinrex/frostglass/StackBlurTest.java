@@ -0,0 +1,299 @@
+package in.robinrex.frostglass;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link StackBlur}.
+ */
+public class StackBlurTest {
+
+    @Test
+    public void uniformImage_isUnchanged() throws Exception {
+        int[] pixels = new int[40 * 30];
+        Arrays.fill(pixels, 0xFF336699);
+
+        new StackBlur(1).blur(pixels, 40, 30, 10);
+
+        for (int pixel : pixels) {
+            assertEquals(0xFF336699, pixel);
+        }
+    }
+
+    @Test
+    public void radiusZero_isNoOp() throws Exception {
+        int[] pixels = randomPixels(16 * 16, 1);
+        int[] original = pixels.clone();
+
+        new StackBlur(1).blur(pixels, 16, 16, 0);
+
+        assertArrayEquals(original, pixels);
+    }
+
+    @Test
+    public void blur_matchesTriangleKernelReference() throws Exception {
+        int width = 37, height = 23, radius = 5;
+        int[] pixels = randomPixels(width * height, 2);
+        int[] expected = referenceBlur(pixels, width, height, radius);
+
+        new StackBlur(1).blur(pixels, width, height, radius);
+
+        assertArrayEquals(expected, pixels);
+    }
+
+    @Test
+    public void parallelBlur_matchesSequentialBlur() throws Exception {
+        int width = 120, height = 90, radius = 12;
+        int[] sequential = randomPixels(width * height, 3);
+        int[] parallel = sequential.clone();
+
+        new StackBlur(1).blur(sequential, width, height, radius);
+        StackBlur stackBlur = new StackBlur(4);
+        stackBlur.blur(parallel, width, height, radius);
+        stackBlur.shutdown();
+
+        assertArrayEquals(sequential, parallel);
+    }
+
+    @Test
+    public void uniformRgb565Image_isUnchanged() throws Exception {
+        short[] pixels = new short[40 * 30];
+        Arrays.fill(pixels, (short) 0xF81F);
+
+        new StackBlur(1).blurRgb565(pixels, 40, 30, 10);
+
+        for (short pixel : pixels) {
+            assertEquals((short) 0xF81F, pixel);
+        }
+    }
+
+    @Test
+    public void rgb565Blur_matchesTriangleKernelReference() throws Exception {
+        int width = 29, height = 17, radius = 4;
+        short[] pixels = randomRgb565Pixels(width * height, 4);
+        short[] expected = referenceBlur565(pixels, width, height, radius);
+
+        new StackBlur(1).blurRgb565(pixels, width, height, radius);
+
+        assertArrayEquals(expected, pixels);
+    }
+
+    @Test
+    public void parallelRgb565Blur_matchesSequentialBlur() throws Exception {
+        int width = 120, height = 90, radius = 12;
+        short[] sequential = randomRgb565Pixels(width * height, 5);
+        short[] parallel = sequential.clone();
+
+        new StackBlur(1).blurRgb565(sequential, width, height, radius);
+        StackBlur stackBlur = new StackBlur(4);
+        stackBlur.blurRgb565(parallel, width, height, radius);
+        stackBlur.shutdown();
+
+        assertArrayEquals(sequential, parallel);
+    }
+
+    @Test
+    public void transparentOverlay_matchesUntintedBlur() throws Exception {
+        int width = 40, height = 30, radius = 6;
+        int[] untinted = randomPixels(width * height, 6);
+        int[] tinted = untinted.clone();
+
+        new StackBlur(1).blur(untinted, width, height, radius);
+        new StackBlur(1).blur(tinted, width, height, radius, 0x00FF0000);
+
+        assertArrayEquals(untinted, tinted);
+    }
+
+    @Test
+    public void overlay_isBlendedOverBlurredPixels() throws Exception {
+        int width = 33, height = 21, radius = 4, overlay = 0x80204060;
+        int[] expected = randomPixels(width * height, 7);
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] |= 0xFF000000;
+        }
+        int[] tinted = expected.clone();
+
+        new StackBlur(1).blur(expected, width, height, radius);
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = sourceOver(overlay, expected[i]);
+        }
+        StackBlur stackBlur = new StackBlur(4);
+        stackBlur.blur(tinted, width, height, radius, overlay);
+        stackBlur.shutdown();
+
+        assertArrayEquals(expected, tinted);
+    }
+
+    @Test
+    public void overlay_isPremultipliedOverTransparentPixels() throws Exception {
+        int[] pixels = new int[12 * 8];
+
+        new StackBlur(1).blur(pixels, 12, 8, 3, 0x80FF0000);
+
+        for (int pixel : pixels) {
+            assertEquals(0x80800000, pixel);
+        }
+    }
+
+    @Test
+    public void opaqueOverlay_coversRgb565Pixels() throws Exception {
+        short[] pixels = randomRgb565Pixels(20 * 20, 8);
+
+        new StackBlur(1).blurRgb565(pixels, 20, 20, 3, 0xFFFF0000);
+
+        for (short pixel : pixels) {
+            assertEquals((short) 0xF800, pixel);
+        }
+    }
+
+    @Test
+    public void scrolledUpFrame_matchesFullBlur() throws Exception {
+        assertShiftedBlurMatchesFullBlur(9);
+    }
+
+    @Test
+    public void scrolledDownFrame_matchesFullBlur() throws Exception {
+        assertShiftedBlurMatchesFullBlur(-7);
+    }
+
+    @Test
+    public void largeScroll_isLeftToFullBlur() throws Exception {
+        int width = 20, height = 40, radius = 6;
+        int[] pixels = randomPixels(width * height, 9);
+        int[] blurred = pixels.clone();
+
+        assertFalse(new StackBlur(1).blurShifted(pixels, blurred, width, height, radius, 10, 0));
+        assertArrayEquals(pixels, blurred);
+    }
+
+    /**
+     * Scrolls a tall image behind a window, and checks that updating the blurred previous window gives the same result
+     * as blurring the new window.
+     */
+    private static void assertShiftedBlurMatchesFullBlur(int shift) {
+        int width = 31, height = 80, radius = 5, overlay = 0x40102030;
+        int[] content = randomPixels(width * (height + 40), 10);
+        int previousTop = 20, currentTop = previousTop + shift;
+
+        int[] blurred = Arrays.copyOfRange(content, previousTop * width, (previousTop + height) * width);
+        int[] current = Arrays.copyOfRange(content, currentTop * width, (currentTop + height) * width);
+        int[] expected = current.clone();
+
+        StackBlur stackBlur = new StackBlur(1);
+        stackBlur.blur(blurred, width, height, radius, overlay);
+        stackBlur.blur(expected, width, height, radius, overlay);
+        int[] unblurred = current.clone();
+
+        assertTrue(stackBlur.blurShifted(current, blurred, width, height, radius, shift, overlay));
+        assertArrayEquals(expected, blurred);
+        assertArrayEquals(unblurred, current);
+    }
+
+    /**
+     * Draws a color over an opaque pixel, rounding every channel to the nearest value.
+     */
+    private static int sourceOver(int color, int pixel) {
+        int alpha = color >>> 24;
+        int result = 0xFF000000;
+        for (int shift = 0; shift < 24; shift += 8) {
+            int channel = Math.round((((color >> shift) & 0xFF) * alpha
+                    + ((pixel >> shift) & 0xFF) * (255 - alpha)) / 255f);
+            result |= channel << shift;
+        }
+        return result;
+    }
+
+    private static short[] randomRgb565Pixels(int count, long seed) {
+        Random random = new Random(seed);
+        short[] pixels = new short[count];
+        for (int i = 0; i < count; i++) {
+            pixels[i] = (short) random.nextInt(0x10000);
+        }
+        return pixels;
+    }
+
+    private static short[] referenceBlur565(short[] src, int width, int height, int radius) {
+        short[] horizontal = new short[width * height];
+        short[] result = new short[width * height];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                horizontal[y * width + x] = convolve565(src, y * width, 1, width, x, radius);
+            }
+        }
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                result[y * width + x] = convolve565(horizontal, x, width, height, y, radius);
+            }
+        }
+
+        return result;
+    }
+
+    private static short convolve565(short[] src, int offset, int stride, int length, int position, int radius) {
+        int divSum = (radius + 1) * (radius + 1);
+        int r = 0, g = 0, b = 0;
+
+        for (int i = -radius; i <= radius; i++) {
+            int pixel = src[offset + Math.min(length - 1, Math.max(0, position + i)) * stride] & 0xFFFF;
+            int weight = radius + 1 - Math.abs(i);
+            r += (pixel >> 11) * weight;
+            g += ((pixel >> 5) & 0x3F) * weight;
+            b += (pixel & 0x1F) * weight;
+        }
+
+        int half = divSum / 2;
+        return (short) ((r + half) / divSum << 11 | (g + half) / divSum << 5 | (b + half) / divSum);
+    }
+
+    private static int[] randomPixels(int count, long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[count];
+        for (int i = 0; i < count; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return pixels;
+    }
+
+    /**
+     * A direct convolution with the triangle kernel StackBlur approximates, clamping at the edges.
+     */
+    private static int[] referenceBlur(int[] src, int width, int height, int radius) {
+        int[] horizontal = new int[width * height];
+        int[] result = new int[width * height];
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                horizontal[y * width + x] = convolve(src, y * width, 1, width, x, radius);
+            }
+        }
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                result[y * width + x] = convolve(horizontal, x, width, height, y, radius);
+            }
+        }
+
+        return result;
+    }
+
+    private static int convolve(int[] src, int offset, int stride, int length, int position, int radius) {
+        int divSum = (radius + 1) * (radius + 1);
+        int[] sums = new int[4];
+
+        for (int i = -radius; i <= radius; i++) {
+            int pixel = src[offset + Math.min(length - 1, Math.max(0, position + i)) * stride];
+            int weight = radius + 1 - Math.abs(i);
+            for (int channel = 0; channel < 4; channel++) {
+                sums[channel] += ((pixel >>> (24 - channel * 8)) & 0xFF) * weight;
+            }
+        }
+
+        return (sums[0] / divSum) << 24 | (sums[1] / divSum) << 16 | (sums[2] / divSum) << 8 | (sums[3] / divSum);
+    }
+}
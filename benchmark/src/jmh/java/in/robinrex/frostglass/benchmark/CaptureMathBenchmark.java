@@ -0,0 +1,77 @@
+package in.robinrex.frostglass.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import in.robinrex.frostglass.BlurPlan;
+import in.robinrex.frostglass.FrameChecksum;
+
+/**
+ * Measures the per-frame bookkeeping of live frosting that does not involve the blur itself: planning the blur and
+ * checking whether the captured frame has changed.
+ *
+ * @author Robin Rex G.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CaptureMathBenchmark {
+
+    /**
+     * Mirrors the sampling limit of the change detector of the library.
+     */
+    private static final int MAX_SAMPLES = 256;
+
+    /**
+     * The size of the capture, after downsampling.
+     */
+    @Param({"90x160", "270x480", "1080x1920"})
+    public String resolution;
+
+    @Param({"8", "64"})
+    public int radius;
+
+    private int[] mPixels, mRow;
+
+    private int mWidth, mHeight;
+
+    @Setup
+    public void setUp() {
+        final int[] size = Resolution.parse(resolution);
+
+        mWidth = size[0];
+        mHeight = size[1];
+        mPixels = Resolution.randomPixels(mWidth, mHeight);
+        mRow = new int[mWidth];
+    }
+
+    @Benchmark
+    public BlurPlan plan() {
+        return BlurPlan.plan(radius, 8, BlurPlan.MAX_KERNEL_RADIUS);
+    }
+
+    /**
+     * Checksums a frame the way the change detector does, except that rows are read from an array instead of copied
+     * out of a bitmap.
+     */
+    @Benchmark
+    public long checksum() {
+        final int rowStep = FrameChecksum.step(mHeight, MAX_SAMPLES);
+        final int columnStep = FrameChecksum.step(mWidth, MAX_SAMPLES);
+
+        long checksum = FrameChecksum.EMPTY;
+        for (int y = 0; y < mHeight; y += rowStep) {
+            System.arraycopy(mPixels, y * mWidth, mRow, 0, mWidth);
+            checksum = FrameChecksum.update(checksum, mRow, mWidth, columnStep);
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,82 @@
+package in.robinrex.frostglass.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import in.robinrex.frostglass.BlurPlan;
+import in.robinrex.frostglass.KawaseBlur;
+import in.robinrex.frostglass.StackBlur;
+
+/**
+ * Compares how the cost of the dual Kawase blur and of a single threaded StackBlur grows with the radius, on a
+ * captured screen planned like the backends plan it.
+ *
+ * @author Robin Rex G.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class KawaseBlurBenchmark {
+
+    /**
+     * The size of the screen before downsampling.
+     */
+    @Param({"1080x1920", "1440x2560"})
+    public String resolution;
+
+    @Param({"2", "8"})
+    public int downsampleFactor;
+
+    @Param({"8", "25", "40", "64", "128"})
+    public int radius;
+
+    private KawaseBlur mKawaseBlur;
+
+    private StackBlur mStackBlur;
+
+    private BlurPlan mKawasePlan, mStackPlan;
+
+    private int[] mKawasePixels, mStackPixels;
+
+    private int mWidth, mHeight;
+
+    @Setup
+    public void setUp() {
+        final int[] size = Resolution.parse(resolution);
+
+        mKawasePlan = BlurPlan.plan(radius, downsampleFactor, KawaseBlur.MAX_RADIUS);
+        mStackPlan = BlurPlan.plan(radius, downsampleFactor, StackBlur.MAX_RADIUS);
+        mWidth = (int) (size[0] / downsampleFactor);
+        mHeight = (int) (size[1] / downsampleFactor);
+        mKawasePixels = Resolution.randomPixels(mWidth, mHeight);
+        mStackPixels = Resolution.randomPixels(mWidth, mHeight);
+        mKawaseBlur = new KawaseBlur();
+        mStackBlur = new StackBlur(1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mStackBlur.shutdown();
+    }
+
+    @Benchmark
+    public int[] kawase() {
+        mKawaseBlur.blur(mKawasePixels, mWidth, mHeight, mKawasePlan.getRadius());
+        return mKawasePixels;
+    }
+
+    @Benchmark
+    public int[] stackBlur() {
+        mStackBlur.blur(mStackPixels, mWidth, mHeight, mStackPlan.getRadius());
+        return mStackPixels;
+    }
+}
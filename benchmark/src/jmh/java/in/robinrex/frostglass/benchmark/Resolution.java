@@ -0,0 +1,40 @@
+package in.robinrex.frostglass.benchmark;
+
+import java.util.Random;
+
+/**
+ * Helpers shared by the benchmarks.
+ *
+ * @author Robin Rex G.
+ */
+final class Resolution {
+
+    private Resolution() {
+    }
+
+    /**
+     * @param resolution A resolution in the {@code WIDTHxHEIGHT} form used by the benchmark parameters.
+     * @return The width and the height.
+     */
+    static int[] parse(String resolution) {
+        final int separator = resolution.indexOf('x');
+        return new int[]{Integer.parseInt(resolution.substring(0, separator)),
+                Integer.parseInt(resolution.substring(separator + 1))};
+    }
+
+    /**
+     * Creates an opaque image with random content. The seed is fixed, so that every run blurs the same pixels.
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @return The pixels of the image.
+     */
+    static int[] randomPixels(int width, int height) {
+        final Random random = new Random(42);
+        final int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,77 @@
+package in.robinrex.frostglass.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+import in.robinrex.frostglass.BlurPlan;
+import in.robinrex.frostglass.StackBlur;
+
+/**
+ * Measures the Java blur backend on a captured screen, as it is blurred by live frosting: the screen is downsampled
+ * and the radius is planned with {@link BlurPlan} before the kernel runs.
+ *
+ * @author Robin Rex G.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StackBlurBenchmark {
+
+    /**
+     * The size of the screen before downsampling.
+     */
+    @Param({"720x1280", "1080x1920", "1440x2560"})
+    public String resolution;
+
+    @Param({"1", "4", "8"})
+    public int downsampleFactor;
+
+    @Param({"4", "16", "25", "64"})
+    public int radius;
+
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    private StackBlur mStackBlur;
+
+    private BlurPlan mPlan;
+
+    private int[] mPixels;
+
+    private int mWidth, mHeight;
+
+    @Setup
+    public void setUp() {
+        final int[] size = Resolution.parse(resolution);
+
+        mPlan = BlurPlan.plan(radius, downsampleFactor, StackBlur.MAX_RADIUS);
+        mWidth = (int) (size[0] / mPlan.getDownsampleFactor());
+        mHeight = (int) (size[1] / mPlan.getDownsampleFactor());
+        mPixels = Resolution.randomPixels(mWidth, mHeight);
+        mStackBlur = new StackBlur(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mStackBlur.shutdown();
+    }
+
+    /**
+     * Blurs in place like the backend does. Blurring an already blurred image costs the same, so the pixels are not
+     * restored between invocations.
+     */
+    @Benchmark
+    public int[] blur() {
+        mStackBlur.blur(mPixels, mWidth, mHeight, mPlan.getRadius());
+        return mPixels;
+    }
+}